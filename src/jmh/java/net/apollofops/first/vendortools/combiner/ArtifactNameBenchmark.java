@@ -0,0 +1,103 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures decoding the Maven coordinates from artifact file names with {@link CombinerArtifact#fromFile(File)}, which runs for every
+ * file of every product folder. The names are a mix of artifacts with and without classifiers, bundle-style nested paths, and files that
+ * aren't artifacts at all, such as headers and metadata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ArtifactNameBenchmark {
+	/**
+	 * The number of file names decoded by each benchmark call.
+	 */
+	@Param({ "10000" })
+	public int nameCount;
+	/**
+	 * The fraction of the file names that aren't artifacts.
+	 */
+	@Param({ "0.3" })
+	public double otherFraction;
+
+	/**
+	 * The files to decode.
+	 */
+	private List<File> files;
+
+	/**
+	 * Creates the file names.
+	 */
+	@Setup(Level.Trial)
+	public void createNames() {
+		String[] classifiers = { "", "-sources", "-javadoc", "-headers", "-linuxathena", "-linuxathenastatic", "-windowsx86-64" };
+		String[] others = { "acme.h", "metadata.properties", "README.md", "libacme.so" };
+		Random random = new Random(1);
+		files = new ArrayList<File>(nameCount);
+		for (int i = 0; i < nameCount; i++) {
+			String name;
+			if (random.nextDouble() < otherFraction) {
+				name = others[random.nextInt(others.length)];
+			} else {
+				String extension = random.nextBoolean() ? "jar" : "zip";
+				name = String.format("_GROUP_com_acme_vendor%d_ID_acmelib%d-%s_CLS%s.%s", i % 7, i % 50, extension.equals("jar") ? "java" : "cpp",
+						classifiers[random.nextInt(classifiers.length)], extension);
+			}
+			files.add(new File(String.format("products/lib%d/%s", i % 50, name)));
+		}
+	}
+
+	/**
+	 * Decodes every file name.
+	 *
+	 * @param blackhole
+	 *                Consumes the decoded artifacts.
+	 */
+	@Benchmark
+	public void fromFile(Blackhole blackhole) {
+		for (File file : files) {
+			blackhole.consume(CombinerArtifact.fromFile(file));
+		}
+	}
+
+	/**
+	 * Decodes every file name and reads the derived coordinates, as building a publication does.
+	 *
+	 * @param blackhole
+	 *                Consumes the coordinates.
+	 */
+	@Benchmark
+	public void fromFileWithCoordinates(Blackhole blackhole) {
+		for (File file : files) {
+			CombinerArtifact artifact = CombinerArtifact.fromFile(file);
+			if (artifact != null) {
+				blackhole.consume(artifact.getMavenGroupId());
+				blackhole.consume(artifact.getPublicationName());
+				blackhole.consume(artifact.getExtension());
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the single-pass {@link FolderScan} walk with the three Ant globs per product folder the combiner used before, on a synthetic
+ * products tree. The globs are run with Ant's {@link DirectoryScanner} directly, which is what {@code FileNameFinder} used, so the cost
+ * of creating an {@code AntBuilder} for every call isn't counted against the old approach. Each product folder has native zips in nested platform folders, jars, headers that match neither glob, and a metadata
+ * file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ProductScanBenchmark {
+	/**
+	 * The pattern the combiner used to decode artifact file names before the scan was replaced.
+	 */
+	private static final Pattern LEGACY_PATTERN = Pattern.compile("([_M_]*)_GROUP_([^\\.]+)_ID_([^\\.]+)_CLS([^\\.]*).", Pattern.MULTILINE);
+
+	/**
+	 * The number of files in the products tree.
+	 */
+	@Param({ "100000" })
+	public int fileCount;
+	/**
+	 * The number of product folders the files are spread over.
+	 */
+	@Param({ "50" })
+	public int folderCount;
+
+	/**
+	 * The products folder.
+	 */
+	private Path productsFolder;
+	/**
+	 * The product folders in the {@link #productsFolder}.
+	 */
+	private List<File> folders;
+
+	/**
+	 * Creates the products tree.
+	 *
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the tree.
+	 */
+	@Setup(Level.Trial)
+	public void createProducts() throws IOException {
+		productsFolder = Files.createTempDirectory("vendortools-scan-benchmark");
+		folders = new ArrayList<File>();
+
+		int filesPerFolder = fileCount / folderCount;
+		for (int folderIndex = 0; folderIndex < folderCount; folderIndex++) {
+			Path folder = Files.createDirectories(productsFolder.resolve(String.format("product%d", folderIndex)));
+			folders.add(folder.toFile());
+			Files.writeString(folder.resolve(CombinerProducts.METADATA_FILE_NAME), "version=1.0.0\nreleasesRepoName=release\n");
+
+			for (int fileIndex = 1; fileIndex < filesPerFolder; fileIndex++) {
+				Path platform = Files.createDirectories(folder.resolve(String.format("platform%d", fileIndex % 16)));
+				String artifactId = String.format("lib%d-%d", folderIndex, fileIndex / 64);
+				switch (fileIndex % 4) {
+					case 0:
+						Files.createFile(folder.resolve(String.format("_GROUP_com_acme_ID_%s-java_CLS-%d.jar", artifactId, fileIndex)));
+						break;
+					case 1:
+						Files.createFile(platform.resolve(String.format("include%d.h", fileIndex)));
+						break;
+					default:
+						Files.createFile(platform.resolve(String.format("_GROUP_com_acme_ID_%s-cpp_CLS-platform%d.zip", artifactId, fileIndex)));
+						break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the products tree.
+	 *
+	 * @throws IOException
+	 *                 If an IOException occurs while deleting the tree.
+	 */
+	@TearDown(Level.Trial)
+	public void deleteProducts() throws IOException {
+		try (Stream<Path> paths = Files.walk(productsFolder)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	/**
+	 * Scans every product folder with three Ant globs, and decodes the artifact names with the legacy pattern.
+	 *
+	 * @param blackhole
+	 *                The blackhole consuming the decoded artifacts.
+	 */
+	@Benchmark
+	public void antGlobs(Blackhole blackhole) {
+		for (File folder : folders) {
+			List<String> files = new ArrayList<String>();
+			files.addAll(glob(folder, "**/*.zip"));
+			files.addAll(glob(folder, "**/*.jar"));
+			blackhole.consume(glob(folder, "**/metadata.properties"));
+
+			for (String file : files) {
+				Matcher matcher = LEGACY_PATTERN.matcher(new File(folder, file).getName());
+				if (matcher.find()) {
+					blackhole.consume(matcher.group(3));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the files in a folder matching an Ant pattern, with a separate walk of the folder.
+	 *
+	 * @param folder
+	 *                The folder to search.
+	 * @param pattern
+	 *                The Ant pattern to match.
+	 * @return
+	 *         The matching paths, relative to the folder.
+	 */
+	private static List<String> glob(File folder, String pattern) {
+		DirectoryScanner scanner = new DirectoryScanner();
+		scanner.setBasedir(folder);
+		scanner.setIncludes(new String[] { pattern });
+		scanner.scan();
+		return Arrays.asList(scanner.getIncludedFiles());
+	}
+
+	/**
+	 * Scans every product folder with a single {@link FolderScan} walk, one product folder at a time.
+	 *
+	 * @param blackhole
+	 *                The blackhole consuming the scans.
+	 */
+	@Benchmark
+	public void folderScan(Blackhole blackhole) {
+		for (File folder : folders) {
+			blackhole.consume(FolderScan.scan(folder).toProductFolder(null, null));
+		}
+	}
+
+	/**
+	 * Scans the product folders in parallel, the same way {@link CombinerProducts} does without an index.
+	 *
+	 * @param blackhole
+	 *                The blackhole consuming the products.
+	 */
+	@Benchmark
+	public void combinerProducts(Blackhole blackhole) {
+		blackhole.consume(Arrays.stream(productsFolder.toFile().listFiles(File::isDirectory))
+				.parallel()
+				.map((folder) -> ProductFolder.read(folder, null, null))
+				.collect(Collectors.toList()));
+	}
+}
@@ -0,0 +1,133 @@
+package net.apollofops.first.vendortools;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Places the outputs of a project in its folder of the shared products folder, through the {@link OutputAggregationService}, so the
+ * combiner can read the outputs of every project in the same build.
+ */
+public abstract class AggregateOutputsTask extends DefaultTask {
+	/**
+	 * The output files to place.
+	 */
+	private final ConfigurableFileCollection inputFiles;
+	/**
+	 * The product folder of the project.
+	 */
+	private final DirectoryProperty productFolder;
+	/**
+	 * The path of the project the outputs belong to.
+	 */
+	private final Property<String> projectPath;
+	/**
+	 * The service used to place the outputs.
+	 */
+	private final Property<OutputAggregationService> aggregationService;
+
+	/**
+	 * Creates a new AggregateOutputsTask.
+	 *
+	 * @param objects
+	 *                ObjectFactory used to create properties.
+	 */
+	@Inject
+	public AggregateOutputsTask(ObjectFactory objects) {
+		this.inputFiles = objects.fileCollection();
+		this.productFolder = objects.directoryProperty();
+		this.projectPath = objects.property(String.class);
+		this.aggregationService = objects.property(OutputAggregationService.class);
+	}
+
+	/**
+	 * Gets the {@link #inputFiles} for this task.
+	 *
+	 * @return
+	 *         The {@link #inputFiles} for this task.
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.NAME_ONLY)
+	public ConfigurableFileCollection getInputFiles() {
+		return inputFiles;
+	}
+
+	/**
+	 * Gets the {@link #productFolder} for this task.
+	 *
+	 * @return
+	 *         The {@link #productFolder} for this task.
+	 */
+	@OutputDirectory
+	public DirectoryProperty getProductFolder() {
+		return productFolder;
+	}
+
+	/**
+	 * Gets the {@link #projectPath} for this task.
+	 *
+	 * @return
+	 *         The {@link #projectPath} for this task.
+	 */
+	@Input
+	public Property<String> getProjectPath() {
+		return projectPath;
+	}
+
+	/**
+	 * Gets the {@link #aggregationService} for this task.
+	 *
+	 * @return
+	 *         The {@link #aggregationService} for this task.
+	 */
+	@Internal
+	public Property<OutputAggregationService> getAggregationService() {
+		return aggregationService;
+	}
+
+	/**
+	 * Gets the description of this task.
+	 *
+	 * @return
+	 *         The description of this task.
+	 */
+	@Override
+	public String getDescription() {
+		return "Places the outputs in the shared products folder, so they can be combined in the same build.";
+	}
+
+	/**
+	 * Gets the group of this task.
+	 *
+	 * @return
+	 *         The group of this task.
+	 */
+	@Override
+	public String getGroup() {
+		return "Build";
+	}
+
+	/**
+	 * Places the {@link #inputFiles} in the {@link #productFolder}.
+	 *
+	 * @throws IOException
+	 *                 If an IOException occurs while placing the files.
+	 */
+	@TaskAction
+	public void execute() throws IOException {
+		aggregationService.get().aggregate(projectPath.get(), productFolder.getAsFile().get(), inputFiles);
+	}
+}
@@ -1,21 +1,38 @@
 package net.apollofops.first.vendortools;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import javax.inject.Inject;
 
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Task;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
 
 /**
- * Copies the outputs from a set of tasks into a single directory.
+ * Copies the outputs from a set of tasks into a single directory. Only added or changed files are copied, and files whose input was
+ * removed are deleted. Files are copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
  */
+@CacheableTask
 public abstract class CopyAllOutputsTask extends DefaultTask {
 	/**
 	 * The input files to copy.
@@ -25,17 +42,24 @@ public abstract class CopyAllOutputsTask extends DefaultTask {
 	 * The directory to copy into.
 	 */
 	private final DirectoryProperty outputsFolder;
+	/**
+	 * File system operations used to clear the directory when a full copy is needed.
+	 */
+	private final FileSystemOperations fileSystemOperations;
 
 	/**
 	 * Creates a new CopyAllOutputsTask.
 	 *
 	 * @param objects
 	 *                ObjectFactory used to create properties.
+	 * @param fileSystemOperations
+	 *                FileSystemOperations used to clear the directory.
 	 */
 	@Inject
-	public CopyAllOutputsTask(ObjectFactory objects) {
+	public CopyAllOutputsTask(ObjectFactory objects, FileSystemOperations fileSystemOperations) {
 		this.inputFiles = objects.fileCollection();
 		this.outputsFolder = objects.directoryProperty();
+		this.fileSystemOperations = fileSystemOperations;
 	}
 
 	/**
@@ -44,7 +68,9 @@ public abstract class CopyAllOutputsTask extends DefaultTask {
 	 * @return
 	 *         The {@link #inputFiles} for this task.
 	 */
+	@Incremental
 	@InputFiles
+	@PathSensitive(PathSensitivity.NAME_ONLY)
 	public ConfigurableFileCollection getInputFiles() {
 		return inputFiles;
 	}
@@ -61,14 +87,24 @@ public abstract class CopyAllOutputsTask extends DefaultTask {
 	}
 
 	/**
-	 * Adds a task's outputs to the all outputs task. Reads the task's archiveFile property and adds it to the {@link #inputFiles}.
+	 * Adds a task's outputs to the all outputs task. Maps the task's archiveFile property and adds it to the {@link #inputFiles}.
+	 * The task is not realized until the {@link #inputFiles} are resolved, and the task dependency is carried by the provider.
 	 *
 	 * @param task
-	 *                Task to add.
+	 *                Provider of the task to add.
+	 */
+	public void addTask(TaskProvider<? extends AbstractArchiveTask> task) {
+		addArchiveFile(task.flatMap(AbstractArchiveTask::getArchiveFile));
+	}
+
+	/**
+	 * Adds an archive file to the {@link #inputFiles}. Any task dependencies carried by the provider are also added to this task.
+	 *
+	 * @param archiveFile
+	 *                Provider of the archive file to add.
 	 */
-	public void addTask(Task task) {
-		dependsOn(task);
-		inputFiles.from(task.property("archiveFile"));
+	public void addArchiveFile(Provider<RegularFile> archiveFile) {
+		inputFiles.from(archiveFile);
 	}
 
 	/**
@@ -94,17 +130,32 @@ public abstract class CopyAllOutputsTask extends DefaultTask {
 	}
 
 	/**
-	 * Copies the {@link #inputFiles} to the {@link #outputsFolder}.
+	 * Copies the changed {@link #inputFiles} to the {@link #outputsFolder}, and deletes the files whose input was removed. If the change
+	 * isn't incremental, the {@link #outputsFolder} is cleared and every file is copied.
 	 *
+	 * @param inputChanges
+	 *                The changes to the {@link #inputFiles} since the last execution.
 	 * @throws IOException
-	 *                 If an IOException occurs while writing the file.
-	 * @see org.gradle.api.Project#copy(org.gradle.api.Action)
+	 *                 If an IOException occurs while writing the files.
 	 */
 	@TaskAction
-	public void execute() throws IOException {
-		getProject().copy(t -> {
-			t.from(inputFiles);
-			t.into(outputsFolder);
-		});
+	public void execute(InputChanges inputChanges) throws IOException {
+		Path outputs = outputsFolder.getAsFile().get().toPath();
+
+		if (!inputChanges.isIncremental()) {
+			fileSystemOperations.delete(t -> t.delete(outputsFolder));
+		}
+		Files.createDirectories(outputs);
+
+		for (FileChange change : inputChanges.getFileChanges(inputFiles)) {
+			File file = change.getFile();
+			Path target = outputs.resolve(file.getName());
+
+			if (change.getChangeType() == ChangeType.REMOVED) {
+				Files.deleteIfExists(target);
+			} else if (file.isFile()) {
+				OutputFiles.copy(file.toPath(), target);
+			}
+		}
 	}
 }
@@ -0,0 +1,80 @@
+package net.apollofops.first.vendortools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Places an archive built by another task at a different path, so the archive only has to be compressed once.
+ *
+ * @see OutputFiles#copy(Path, Path)
+ */
+public abstract class CopyArchiveTask extends DefaultTask {
+	/**
+	 * The archive to copy.
+	 */
+	private final RegularFileProperty sourceFile;
+	/**
+	 * The file to copy the archive to.
+	 */
+	private final RegularFileProperty archiveFile;
+
+	/**
+	 * Creates a new CopyArchiveTask.
+	 *
+	 * @param objects
+	 *                ObjectFactory used to create properties.
+	 */
+	@Inject
+	public CopyArchiveTask(ObjectFactory objects) {
+		this.sourceFile = objects.fileProperty();
+		this.archiveFile = objects.fileProperty();
+	}
+
+	/**
+	 * Gets the {@link #sourceFile} for this task.
+	 *
+	 * @return
+	 *         The {@link #sourceFile} for this task.
+	 */
+	@InputFile
+	@PathSensitive(PathSensitivity.NONE)
+	public RegularFileProperty getSourceFile() {
+		return sourceFile;
+	}
+
+	/**
+	 * Gets the {@link #archiveFile} for this task.
+	 *
+	 * @return
+	 *         The {@link #archiveFile} for this task.
+	 */
+	@OutputFile
+	public RegularFileProperty getArchiveFile() {
+		return archiveFile;
+	}
+
+	/**
+	 * Copies the {@link #sourceFile} to the {@link #archiveFile}.
+	 *
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the file.
+	 */
+	@TaskAction
+	public void execute() throws IOException {
+		Path target = archiveFile.getAsFile().get().toPath();
+		Files.createDirectories(target.getParent());
+		OutputFiles.copy(sourceFile.getAsFile().get().toPath(), target);
+	}
+}
@@ -0,0 +1,488 @@
+package net.apollofops.first.vendortools;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Checks that a stream of characters is well-formed JSON, one character at a time, without keeping the document in memory. Only the
+ * nesting of the objects and arrays is kept.
+ */
+final class JsonChecker {
+	/**
+	 * What the checker expects to see next, outside of a string, number or literal.
+	 */
+	private enum Expect {
+		/** A value. */
+		VALUE,
+		/** The first value of an array, or the end of the array. */
+		FIRST_VALUE_OR_END,
+		/** A comma or the end of an array. */
+		COMMA_OR_END_ARRAY,
+		/** The first key of an object, or the end of the object. */
+		FIRST_KEY_OR_END,
+		/** An object key. */
+		KEY,
+		/** The colon after an object key. */
+		COLON,
+		/** A comma or the end of an object. */
+		COMMA_OR_END_OBJECT,
+		/** Nothing but whitespace, after the top level value. */
+		NOTHING
+	}
+
+	/**
+	 * The token being read.
+	 */
+	private enum Token {
+		/** Not inside a token. */
+		NONE,
+		/** Inside a string. */
+		STRING,
+		/** After a backslash in a string. */
+		STRING_ESCAPE,
+		/** Inside a unicode escape in a string. */
+		STRING_UNICODE,
+		/** After the minus sign of a number. */
+		NUMBER_MINUS,
+		/** After a leading zero of a number. */
+		NUMBER_ZERO,
+		/** Inside the integer digits of a number. */
+		NUMBER_INTEGER,
+		/** After the decimal point of a number. */
+		NUMBER_POINT,
+		/** Inside the fraction digits of a number. */
+		NUMBER_FRACTION,
+		/** After the exponent marker of a number. */
+		NUMBER_EXPONENT,
+		/** After the exponent sign of a number. */
+		NUMBER_EXPONENT_SIGN,
+		/** Inside the exponent digits of a number. */
+		NUMBER_EXPONENT_DIGITS,
+		/** Inside a true, false or null literal. */
+		LITERAL
+	}
+
+	/**
+	 * The open objects and arrays, as their opening characters.
+	 */
+	private final Deque<Character> containers = new ArrayDeque<Character>();
+	/**
+	 * What the checker expects to see next.
+	 */
+	private Expect expect = Expect.VALUE;
+	/**
+	 * The token being read.
+	 */
+	private Token token = Token.NONE;
+	/**
+	 * Whether the string being read is an object key.
+	 */
+	private boolean stringIsKey;
+	/**
+	 * The number of hex digits left in a unicode escape.
+	 */
+	private int unicodeDigitsLeft;
+	/**
+	 * The rest of the literal being read.
+	 */
+	private String literalLeft;
+	/**
+	 * The first error found, or {@code null} if the JSON is well-formed so far.
+	 */
+	private String error;
+
+	/**
+	 * Escapes a string for a JSON string literal. Quotes, backslashes and control characters are escaped, and everything else is kept.
+	 *
+	 * @param value
+	 *                The string to escape.
+	 * @return
+	 *         The escaped string, without the surrounding quotes.
+	 */
+	static String escape(String value) {
+		StringBuilder escaped = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					escaped.append("\\\"");
+					break;
+				case '\\':
+					escaped.append("\\\\");
+					break;
+				case '\b':
+					escaped.append("\\b");
+					break;
+				case '\f':
+					escaped.append("\\f");
+					break;
+				case '\n':
+					escaped.append("\\n");
+					break;
+				case '\r':
+					escaped.append("\\r");
+					break;
+				case '\t':
+					escaped.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						escaped.append(String.format("\\u%04x", (int) c));
+					} else {
+						escaped.append(c);
+					}
+					break;
+			}
+		}
+		return escaped.toString();
+	}
+
+	/**
+	 * Checks the next character.
+	 *
+	 * @param c
+	 *                The character.
+	 * @return
+	 *         {@code false} if the character made the JSON malformed. Only the first error is reported, so later characters are ignored.
+	 */
+	boolean accept(char c) {
+		if (error != null) {
+			return true;
+		}
+
+		switch (token) {
+			case STRING:
+				if (c == '"') {
+					token = Token.NONE;
+					if (stringIsKey) {
+						expect = Expect.COLON;
+					} else {
+						valueEnded();
+					}
+				} else if (c == '\\') {
+					token = Token.STRING_ESCAPE;
+				} else if (c < 0x20) {
+					return fail("Control characters must be escaped in strings");
+				}
+				return true;
+			case STRING_ESCAPE:
+				if (c == 'u') {
+					token = Token.STRING_UNICODE;
+					unicodeDigitsLeft = 4;
+				} else if ("\"\\/bfnrt".indexOf(c) >= 0) {
+					token = Token.STRING;
+				} else {
+					return fail(String.format("Invalid escape '\\%c' in string", c));
+				}
+				return true;
+			case STRING_UNICODE:
+				if (Character.digit(c, 16) < 0) {
+					return fail("Invalid unicode escape in string");
+				}
+				if (--unicodeDigitsLeft == 0) {
+					token = Token.STRING;
+				}
+				return true;
+			case LITERAL:
+				if (c != literalLeft.charAt(0)) {
+					return fail("Invalid literal");
+				}
+				literalLeft = literalLeft.substring(1);
+				if (literalLeft.isEmpty()) {
+					token = Token.NONE;
+					valueEnded();
+				}
+				return true;
+			case NONE:
+				return acceptStructural(c);
+			default:
+				return acceptNumber(c);
+		}
+	}
+
+	/**
+	 * Finishes checking, once every character has been accepted.
+	 *
+	 * @return
+	 *         {@code false} if the JSON ended early.
+	 */
+	boolean finish() {
+		if (error != null) {
+			return true;
+		}
+		if (isNumberComplete()) {
+			token = Token.NONE;
+			valueEnded();
+		}
+		if (token != Token.NONE || expect != Expect.NOTHING) {
+			return fail("Unexpected end of file");
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the characters accepted so far end inside a string, where the next character is part of the string's contents.
+	 *
+	 * @return
+	 *         Whether the checker is inside a string, and not right after a backslash.
+	 */
+	boolean isInString() {
+		return token == Token.STRING;
+	}
+
+	/**
+	 * Gets the first error found.
+	 *
+	 * @return
+	 *         The first error, or {@code null} if the JSON is well-formed so far.
+	 */
+	String getError() {
+		return error;
+	}
+
+	/**
+	 * Checks a character outside of a string, number or literal.
+	 *
+	 * @param c
+	 *                The character.
+	 * @return
+	 *         {@code false} if the character made the JSON malformed.
+	 */
+	private boolean acceptStructural(char c) {
+		if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+			return true;
+		}
+
+		switch (expect) {
+			case VALUE:
+			case FIRST_VALUE_OR_END:
+				if (expect == Expect.FIRST_VALUE_OR_END && c == ']') {
+					return endContainer();
+				}
+				return startValue(c);
+			case FIRST_KEY_OR_END:
+			case KEY:
+				if (expect == Expect.FIRST_KEY_OR_END && c == '}') {
+					return endContainer();
+				}
+				if (c != '"') {
+					return fail("Expected an object key");
+				}
+				token = Token.STRING;
+				stringIsKey = true;
+				return true;
+			case COLON:
+				if (c != ':') {
+					return fail("Expected ':' after an object key");
+				}
+				expect = Expect.VALUE;
+				return true;
+			case COMMA_OR_END_OBJECT:
+				if (c == ',') {
+					expect = Expect.KEY;
+					return true;
+				}
+				if (c == '}') {
+					return endContainer();
+				}
+				return fail("Expected ',' or '}'");
+			case COMMA_OR_END_ARRAY:
+				if (c == ',') {
+					expect = Expect.VALUE;
+					return true;
+				}
+				if (c == ']') {
+					return endContainer();
+				}
+				return fail("Expected ',' or ']'");
+			default:
+				return fail("Unexpected content after the end of the document");
+		}
+	}
+
+	/**
+	 * Starts reading a value.
+	 *
+	 * @param c
+	 *                The first character of the value.
+	 * @return
+	 *         {@code false} if the character can't start a value.
+	 */
+	private boolean startValue(char c) {
+		switch (c) {
+			case '{':
+				containers.push('{');
+				expect = Expect.FIRST_KEY_OR_END;
+				return true;
+			case '[':
+				containers.push('[');
+				expect = Expect.FIRST_VALUE_OR_END;
+				return true;
+			case '"':
+				token = Token.STRING;
+				stringIsKey = false;
+				return true;
+			case '-':
+				token = Token.NUMBER_MINUS;
+				return true;
+			case '0':
+				token = Token.NUMBER_ZERO;
+				return true;
+			case 't':
+				return startLiteral("rue");
+			case 'f':
+				return startLiteral("alse");
+			case 'n':
+				return startLiteral("ull");
+			default:
+				if (c >= '1' && c <= '9') {
+					token = Token.NUMBER_INTEGER;
+					return true;
+				}
+				return fail("Expected a value");
+		}
+	}
+
+	/**
+	 * Starts reading a literal.
+	 *
+	 * @param rest
+	 *                The rest of the literal, after its first character.
+	 * @return
+	 *         {@code true}.
+	 */
+	private boolean startLiteral(String rest) {
+		token = Token.LITERAL;
+		literalLeft = rest;
+		return true;
+	}
+
+	/**
+	 * Checks a character inside a number. A character that can't continue the number ends it, and is then checked on its own.
+	 *
+	 * @param c
+	 *                The character.
+	 * @return
+	 *         {@code false} if the character made the JSON malformed.
+	 */
+	private boolean acceptNumber(char c) {
+		boolean digit = c >= '0' && c <= '9';
+
+		switch (token) {
+			case NUMBER_MINUS:
+				if (c == '0') {
+					token = Token.NUMBER_ZERO;
+					return true;
+				}
+				if (digit) {
+					token = Token.NUMBER_INTEGER;
+					return true;
+				}
+				return fail("Expected a digit after '-'");
+			case NUMBER_ZERO:
+			case NUMBER_INTEGER:
+				if (digit && token == Token.NUMBER_INTEGER) {
+					return true;
+				}
+				if (c == '.') {
+					token = Token.NUMBER_POINT;
+					return true;
+				}
+				if (c == 'e' || c == 'E') {
+					token = Token.NUMBER_EXPONENT;
+					return true;
+				}
+				break;
+			case NUMBER_POINT:
+				if (!digit) {
+					return fail("Expected a digit after '.'");
+				}
+				token = Token.NUMBER_FRACTION;
+				return true;
+			case NUMBER_FRACTION:
+				if (digit) {
+					return true;
+				}
+				if (c == 'e' || c == 'E') {
+					token = Token.NUMBER_EXPONENT;
+					return true;
+				}
+				break;
+			case NUMBER_EXPONENT:
+				if (c == '+' || c == '-') {
+					token = Token.NUMBER_EXPONENT_SIGN;
+					return true;
+				}
+				if (!digit) {
+					return fail("Expected a digit in the exponent");
+				}
+				token = Token.NUMBER_EXPONENT_DIGITS;
+				return true;
+			case NUMBER_EXPONENT_SIGN:
+				if (!digit) {
+					return fail("Expected a digit in the exponent");
+				}
+				token = Token.NUMBER_EXPONENT_DIGITS;
+				return true;
+			default:
+				if (digit) {
+					return true;
+				}
+				break;
+		}
+
+		// The number has ended, so check the character on its own
+		token = Token.NONE;
+		valueEnded();
+		return acceptStructural(c);
+	}
+
+	/**
+	 * Gets whether the number being read is complete.
+	 *
+	 * @return
+	 *         {@code true} if a number is being read and could end here.
+	 */
+	private boolean isNumberComplete() {
+		return token == Token.NUMBER_ZERO || token == Token.NUMBER_INTEGER || token == Token.NUMBER_FRACTION
+				|| token == Token.NUMBER_EXPONENT_DIGITS;
+	}
+
+	/**
+	 * Ends the innermost object or array.
+	 *
+	 * @return
+	 *         {@code true}.
+	 */
+	private boolean endContainer() {
+		containers.pop();
+		valueEnded();
+		return true;
+	}
+
+	/**
+	 * Updates what is expected after a value ends.
+	 */
+	private void valueEnded() {
+		if (containers.isEmpty()) {
+			expect = Expect.NOTHING;
+		} else if (containers.peek() == '{') {
+			expect = Expect.COMMA_OR_END_OBJECT;
+		} else {
+			expect = Expect.COMMA_OR_END_ARRAY;
+		}
+	}
+
+	/**
+	 * Records an error.
+	 *
+	 * @param message
+	 *                The error message.
+	 * @return
+	 *         {@code false}.
+	 */
+	private boolean fail(String message) {
+		error = message;
+		return false;
+	}
+}
@@ -0,0 +1,363 @@
+package net.apollofops.first.vendortools;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.GradleException;
+
+/**
+ * Expands {@code ${key}} and {@code $key} placeholders in a JSON template while streaming it, and checks that the result is well-formed JSON
+ * in the same pass. Only the current placeholder is kept in memory, so templates of any size can be expanded.
+ * <p>
+ * A <code>$</code> followed by a letter or {@code _} starts a placeholder without braces, which ends at the first character that isn't a
+ * letter, digit or {@code _}, the same as in the Groovy templates Gradle's {@code expand} uses. Any other <code>$</code> that isn't followed
+ * by <code>&#123;</code> is copied as-is, and a <code>$$</code> before a placeholder is written as a literal <code>$</code>, so
+ * <code>$$&#123;key&#125;</code> and <code>$$key</code> are written as <code>$&#123;key&#125;</code> and <code>$key</code>. Keys in braces
+ * may also contain {@code -} and {@code .}. Values substituted inside a JSON string are escaped, so quotes, backslashes and control
+ * characters in them are kept as part of the string, and values outside of strings are written as-is. A byte order mark at the start of the template is skipped. Unknown keys, invalid or unterminated
+ * placeholders and malformed JSON are reported with their line and column in the template.
+ */
+public final class JsonTemplateExpander {
+	/**
+	 * The maximum number of problems reported for one template.
+	 */
+	private static final int MAX_PROBLEMS = 20;
+	/**
+	 * The size of the buffer used to read the template.
+	 */
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * Where the expander is in the template.
+	 */
+	private enum State {
+		/** In plain text. */
+		TEXT,
+		/** After a {@code $}. */
+		DOLLAR,
+		/** After {@code $$}. */
+		DOUBLE_DOLLAR,
+		/** Inside the key of a placeholder in braces. */
+		KEY,
+		/** Inside the key of a placeholder without braces. */
+		IDENTIFIER
+	}
+
+	/**
+	 * The byte order mark some editors write at the start of UTF-8 files.
+	 */
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+	/**
+	 * The values to substitute, by key.
+	 */
+	private final Map<String, String> values;
+
+	/**
+	 * Creates a new JsonTemplateExpander.
+	 *
+	 * @param values
+	 *                The values to substitute, by key.
+	 */
+	public JsonTemplateExpander(Map<String, String> values) {
+		this.values = values;
+	}
+
+	/**
+	 * Expands a template.
+	 *
+	 * @param template
+	 *                The template to read.
+	 * @param output
+	 *                The writer to write the expanded JSON to.
+	 * @param templateName
+	 *                The name of the template, used in error messages.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading or writing.
+	 * @throws GradleException
+	 *                 If the template contains unknown keys or invalid placeholders, or if the expanded JSON is malformed.
+	 */
+	public void expand(Reader template, Writer output, String templateName) throws IOException {
+		new Expansion(output).run(template, templateName);
+	}
+
+	/**
+	 * The state of a single expansion.
+	 */
+	private final class Expansion {
+		/**
+		 * The writer to write the expanded JSON to.
+		 */
+		private final Writer output;
+		/**
+		 * Checks the expanded JSON.
+		 */
+		private final JsonChecker jsonChecker = new JsonChecker();
+		/**
+		 * The problems found, with their positions.
+		 */
+		private final List<String> problems = new ArrayList<String>();
+		/**
+		 * The key of the current placeholder.
+		 */
+		private final StringBuilder key = new StringBuilder();
+		/**
+		 * Where the expander is in the template.
+		 */
+		private State state = State.TEXT;
+		/**
+		 * The line of the current character, starting at 1.
+		 */
+		private int line = 1;
+		/**
+		 * The column of the current character, starting at 1.
+		 */
+		private int column = 0;
+		/**
+		 * The line of the current placeholder.
+		 */
+		private int placeholderLine;
+		/**
+		 * The column of the current placeholder.
+		 */
+		private int placeholderColumn;
+
+		/**
+		 * Creates a new Expansion.
+		 *
+		 * @param output
+		 *                The writer to write the expanded JSON to.
+		 */
+		private Expansion(Writer output) {
+			this.output = output;
+		}
+
+		/**
+		 * Runs the expansion.
+		 *
+		 * @param template
+		 *                The template to read.
+		 * @param templateName
+		 *                The name of the template, used in error messages.
+		 * @throws IOException
+		 *                 If an IOException occurs while reading or writing.
+		 */
+		private void run(Reader template, String templateName) throws IOException {
+			char[] buffer = new char[BUFFER_SIZE];
+			boolean start = true;
+			int read;
+			while ((read = template.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++) {
+					char c = buffer[i];
+					if (start) {
+						start = false;
+						if (c == BYTE_ORDER_MARK) {
+							continue;
+						}
+					}
+					if (c == '\n') {
+						line++;
+						column = 0;
+					} else {
+						column++;
+					}
+					accept(c);
+				}
+			}
+			finish();
+
+			if (!problems.isEmpty()) {
+				StringBuilder message = new StringBuilder(String.format("Unable to expand %s:", templateName));
+				for (String problem : problems) {
+					message.append(System.lineSeparator()).append("  ").append(problem);
+				}
+				throw new GradleException(message.toString());
+			}
+		}
+
+		/**
+		 * Handles the next template character.
+		 *
+		 * @param c
+		 *                The character.
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void accept(char c) throws IOException {
+			switch (state) {
+				case DOLLAR:
+					if (c == '{') {
+						state = State.KEY;
+						key.setLength(0);
+						return;
+					}
+					if (c == '$') {
+						state = State.DOUBLE_DOLLAR;
+						return;
+					}
+					if (isIdentifierStart(c)) {
+						state = State.IDENTIFIER;
+						key.setLength(0);
+						key.append(c);
+						return;
+					}
+					state = State.TEXT;
+					emit('$', placeholderLine, placeholderColumn);
+					break;
+				case DOUBLE_DOLLAR:
+					if (c == '{' || isIdentifierStart(c)) {
+						state = State.TEXT;
+						emit('$', placeholderLine, placeholderColumn);
+						emit(c, line, column);
+						return;
+					}
+					emit('$', placeholderLine, placeholderColumn);
+					if (c == '$') {
+						placeholderColumn++;
+						return;
+					}
+					state = State.TEXT;
+					emit('$', placeholderLine, placeholderColumn + 1);
+					break;
+				case KEY:
+					if (c == '}') {
+						state = State.TEXT;
+						substitute();
+						return;
+					}
+					if (Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.') {
+						key.append(c);
+						return;
+					}
+					state = State.TEXT;
+					problem(placeholderLine, placeholderColumn, String.format("Invalid or unterminated placeholder '${%s'", key));
+					break;
+				case IDENTIFIER:
+					if (Character.isLetterOrDigit(c) || c == '_') {
+						key.append(c);
+						return;
+					}
+					state = State.TEXT;
+					substitute();
+					break;
+				default:
+					break;
+			}
+
+			if (c == '$') {
+				state = State.DOLLAR;
+				placeholderLine = line;
+				placeholderColumn = column;
+			} else {
+				emit(c, line, column);
+			}
+		}
+
+		/**
+		 * Handles the end of the template.
+		 *
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void finish() throws IOException {
+			switch (state) {
+				case DOLLAR:
+					emit('$', placeholderLine, placeholderColumn);
+					break;
+				case DOUBLE_DOLLAR:
+					emit('$', placeholderLine, placeholderColumn);
+					emit('$', placeholderLine, placeholderColumn + 1);
+					break;
+				case KEY:
+					problem(placeholderLine, placeholderColumn, String.format("Unterminated placeholder '${%s'", key));
+					break;
+				case IDENTIFIER:
+					substitute();
+					break;
+				default:
+					break;
+			}
+
+			if (!jsonChecker.finish()) {
+				problem(line, column, String.format("Malformed JSON: %s", jsonChecker.getError()));
+			}
+		}
+
+		/**
+		 * Writes the value of the current placeholder.
+		 *
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void substitute() throws IOException {
+			String name = key.toString();
+			if (name.isEmpty()) {
+				problem(placeholderLine, placeholderColumn, "Empty placeholder '${}'");
+				return;
+			}
+
+			String value = values.get(name);
+			if (value == null) {
+				problem(placeholderLine, placeholderColumn, String.format("Unknown key '%s'", name));
+				return;
+			}
+			if (jsonChecker.isInString()) {
+				value = JsonChecker.escape(value);
+			}
+			for (int i = 0; i < value.length(); i++) {
+				emit(value.charAt(i), placeholderLine, placeholderColumn);
+			}
+		}
+
+		/**
+		 * Checks whether a character can start a placeholder without braces.
+		 *
+		 * @param c
+		 *                The character after the <code>$</code>.
+		 * @return
+		 *         Whether the character starts a key.
+		 */
+		private boolean isIdentifierStart(char c) {
+			return Character.isLetter(c) || c == '_';
+		}
+
+		/**
+		 * Writes an expanded character and checks it.
+		 *
+		 * @param c
+		 *                The character.
+		 * @param sourceLine
+		 *                The line in the template the character came from.
+		 * @param sourceColumn
+		 *                The column in the template the character came from.
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void emit(char c, int sourceLine, int sourceColumn) throws IOException {
+			output.write(c);
+			if (!jsonChecker.accept(c)) {
+				problem(sourceLine, sourceColumn, String.format("Malformed JSON: %s", jsonChecker.getError()));
+			}
+		}
+
+		/**
+		 * Records a problem.
+		 *
+		 * @param problemLine
+		 *                The line of the problem.
+		 * @param problemColumn
+		 *                The column of the problem.
+		 * @param message
+		 *                The problem message.
+		 */
+		private void problem(int problemLine, int problemColumn, String message) {
+			if (problems.size() < MAX_PROBLEMS) {
+				problems.add(String.format("line %d, column %d: %s", problemLine, problemColumn, message));
+			}
+		}
+	}
+}
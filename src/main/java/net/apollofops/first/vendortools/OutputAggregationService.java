@@ -0,0 +1,226 @@
+package net.apollofops.first.vendortools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Build service that collects the outputs of every VendorTools project in the build into one products folder, in the layout read by the
+ * combiner. Each project gets its own product folder, and the files are copied on a thread pool shared by the whole build,
+ * so projects that run in parallel don't each start their own threads.
+ */
+public abstract class OutputAggregationService implements BuildService<OutputAggregationService.Params>, AutoCloseable {
+	/**
+	 * The name the service is registered under.
+	 */
+	public static final String SERVICE_NAME = "vendorToolsOutputAggregation";
+
+	/**
+	 * The parameters of the service.
+	 */
+	public interface Params extends BuildServiceParameters {
+		/**
+		 * Gets the maximum number of threads used to place files.
+		 *
+		 * @return
+		 *         The maximum number of threads.
+		 */
+		Property<Integer> getMaxThreads();
+	}
+
+	/**
+	 * The path of the project writing to each product folder.
+	 */
+	private final Map<Path, String> owners = new ConcurrentHashMap<Path, String>();
+	/**
+	 * The executor used to place files, created when it is first needed.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Registers the service for the build, if it isn't registered already.
+	 *
+	 * @param project
+	 *                The project registering the service.
+	 * @return
+	 *         A provider of the service.
+	 */
+	public static Provider<OutputAggregationService> register(Project project) {
+		return project.getGradle().getSharedServices().registerIfAbsent(SERVICE_NAME, OutputAggregationService.class, spec -> {
+			spec.getParameters().getMaxThreads().set(Runtime.getRuntime().availableProcessors());
+		});
+	}
+
+	/**
+	 * Records the task that aggregates a project's outputs, so the combiner can depend on it by path without looking into the other
+	 * projects of the build.
+	 *
+	 * @param project
+	 *                The project the task belongs to.
+	 * @param task
+	 *                The aggregation task.
+	 */
+	public static void addAggregateTask(Project project, TaskProvider<AggregateOutputsTask> task) {
+		AggregateTasks.of(project.getGradle()).paths.add(project.absoluteProjectPath(task.getName()));
+	}
+
+	/**
+	 * Gets the paths of the tasks that aggregate the outputs of every project in the build. The paths are read when the provider is
+	 * queried, so it should only be queried once every project has applied its plugins, such as when the task graph is built.
+	 *
+	 * @param project
+	 *                The project querying the paths.
+	 * @return
+	 *         A provider of the task paths, sorted.
+	 */
+	public static Provider<List<String>> getAggregateTaskPaths(Project project) {
+		AggregateTasks aggregateTasks = AggregateTasks.of(project.getGradle());
+		return project.getProviders().provider(() -> aggregateTasks.paths.stream().sorted().collect(Collectors.toList()));
+	}
+
+	/**
+	 * Places a project's outputs in its product folder, and deletes the files left in the folder from earlier builds.
+	 *
+	 * @param projectPath
+	 *                The path of the project the outputs belong to.
+	 * @param productFolder
+	 *                The product folder of the project.
+	 * @param files
+	 *                The output files to place.
+	 * @throws IOException
+	 *                 If an IOException occurs while placing the files.
+	 * @throws GradleException
+	 *                 If another project in the build already wrote to the same product folder.
+	 */
+	public void aggregate(String projectPath, File productFolder, Iterable<File> files) throws IOException {
+		Path folder = productFolder.toPath().toAbsolutePath().normalize();
+		String owner = owners.putIfAbsent(folder, projectPath);
+		if (owner != null && !owner.equals(projectPath)) {
+			throw new GradleException(String.format("Projects %s and %s both aggregate their outputs into %s.", owner, projectPath, folder));
+		}
+		Files.createDirectories(folder);
+
+		Set<Path> targets = new HashSet<Path>();
+		List<Future<?>> placements = new ArrayList<Future<?>>();
+		for (File file : files) {
+			if (!file.isFile()) {
+				continue;
+			}
+			Path target = folder.resolve(file.getName());
+			targets.add(target);
+			placements.add(getExecutor().submit(() -> {
+				try {
+					OutputFiles.copy(file.toPath(), target);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}));
+		}
+
+		// Files that are no longer outputs would otherwise be combined again
+		try (Stream<Path> existing = Files.list(folder)) {
+			for (Path path : (Iterable<Path>) existing::iterator) {
+				if (!targets.contains(path) && Files.isRegularFile(path)) {
+					Files.delete(path);
+				}
+			}
+		}
+
+		for (Future<?> placement : placements) {
+			try {
+				placement.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new GradleException("Interrupted while aggregating outputs.", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) e.getCause()).getCause();
+				}
+				throw new GradleException(String.format("Unable to aggregate the outputs of %s.", projectPath), e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Shuts down the executor at the end of the build.
+	 */
+	@Override
+	public synchronized void close() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Gets the executor used to place files, creating it if needed.
+	 *
+	 * @return
+	 *         The executor.
+	 */
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(getParameters().getMaxThreads().get(), (runnable) -> {
+				Thread thread = new Thread(runnable, "VendorTools output aggregation");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * The aggregation tasks of a build. An instance is kept as an extension of the {@link Gradle} object, so it is shared by every project
+	 * of the build.
+	 */
+	private static final class AggregateTasks {
+		/**
+		 * The name of the extension holding the instance.
+		 */
+		private static final String EXTENSION_NAME = "vendorToolsAggregateTasks";
+
+		/**
+		 * The paths of the aggregation tasks.
+		 */
+		private final Set<String> paths = ConcurrentHashMap.newKeySet();
+
+		/**
+		 * Gets the instance for a build, creating it if needed.
+		 *
+		 * @param gradle
+		 *                The build.
+		 * @return
+		 *         The aggregation tasks of the build.
+		 */
+		private static synchronized AggregateTasks of(Gradle gradle) {
+			AggregateTasks aggregateTasks = gradle.getExtensions().findByType(AggregateTasks.class);
+			if (aggregateTasks == null) {
+				aggregateTasks = new AggregateTasks();
+				gradle.getExtensions().add(AggregateTasks.class, EXTENSION_NAME, aggregateTasks);
+			}
+			return aggregateTasks;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package net.apollofops.first.vendortools;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Utilities for placing build outputs into output folders.
+ */
+public final class OutputFiles {
+	/**
+	 * This is a utility class.
+	 */
+	private OutputFiles() {
+	}
+
+	/**
+	 * Copies a file into place with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets the
+	 * operating system copy the data without passing it through the JVM. Any existing target is replaced. The files are never hard linked,
+	 * since archive tasks update their outputs in place, which would change every linked copy as well.
+	 *
+	 * @param source
+	 *                The file to copy.
+	 * @param target
+	 *                The path to copy it to.
+	 * @throws IOException
+	 *                 If an IOException occurs while copying the file.
+	 */
+	public static void copy(Path source, Path target) throws IOException {
+		Files.deleteIfExists(target);
+
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			long size = in.size();
+			long position = 0;
+			while (position < size) {
+				position += in.transferTo(position, size - position, out);
+			}
+		}
+	}
+}
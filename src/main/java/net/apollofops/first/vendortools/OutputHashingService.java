@@ -0,0 +1,80 @@
+package net.apollofops.first.vendortools;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service holding the thread pool the {@link OutputVersionsTask output manifests} hash their files on. The pool is shared by every
+ * project in the build, so manifests written at the same time don't each start a thread for every processor.
+ */
+public abstract class OutputHashingService implements BuildService<OutputHashingService.Params>, AutoCloseable {
+	/**
+	 * The name the service is registered under.
+	 */
+	public static final String SERVICE_NAME = "vendorToolsOutputHashing";
+
+	/**
+	 * The parameters of the service.
+	 */
+	public interface Params extends BuildServiceParameters {
+		/**
+		 * Gets the maximum number of threads used to hash files.
+		 *
+		 * @return
+		 *         The maximum number of threads.
+		 */
+		Property<Integer> getMaxThreads();
+	}
+
+	/**
+	 * The executor used to hash files, created when it is first needed.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Registers the service for the build, if it isn't registered already.
+	 *
+	 * @param project
+	 *                The project registering the service.
+	 * @return
+	 *         A provider of the service.
+	 */
+	public static Provider<OutputHashingService> register(Project project) {
+		return project.getGradle().getSharedServices().registerIfAbsent(SERVICE_NAME, OutputHashingService.class, spec -> {
+			spec.getParameters().getMaxThreads().set(Runtime.getRuntime().availableProcessors());
+		});
+	}
+
+	/**
+	 * Gets the executor used to hash files, creating it if needed.
+	 *
+	 * @return
+	 *         The executor.
+	 */
+	public synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(getParameters().getMaxThreads().get(), (runnable) -> {
+				Thread thread = new Thread(runnable, "VendorTools output hashing");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Shuts down the executor at the end of the build.
+	 */
+	@Override
+	public synchronized void close() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+}
@@ -1,30 +1,67 @@
 package net.apollofops.first.vendortools;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 
-import org.codehaus.groovy.runtime.ResourceGroovyMethods;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 /**
- * Prints the versions of WPILib to a file for later use when publishing.
+ * Writes a manifest of the build outputs for the downstream packaging and combine jobs. The manifest is a JSON file containing the project
+ * version and the name, size and SHA-256 of every output file, so the jobs can compare manifests and only move the files that changed.
+ * Files are hashed in parallel, on the thread pool of the {@link OutputHashingService}.
  */
+@CacheableTask
 public abstract class OutputVersionsTask extends DefaultTask {
 	/**
-	 * The project version to write to the file.
+	 * The size of the buffer files are read through, in bytes.
+	 */
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * The project version to write to the manifest.
 	 */
 	private final Property<String> version;
 	/**
-	 * The file to output to.
+	 * The output files to list in the manifest.
+	 */
+	private final ConfigurableFileCollection inputFiles;
+	/**
+	 * The manifest file to write.
 	 */
-	private final RegularFileProperty versionFile;
+	private final RegularFileProperty manifestFile;
+	/**
+	 * The service holding the thread pool the files are hashed on.
+	 */
+	private final Property<OutputHashingService> hashingService;
 
 	/**
 	 * Creates a new OutputVersionsTask.
@@ -34,8 +71,10 @@ public abstract class OutputVersionsTask extends DefaultTask {
 	 */
 	@Inject
 	public OutputVersionsTask(ObjectFactory objects) {
-		this.versionFile = objects.fileProperty();
 		this.version = objects.property(String.class);
+		this.inputFiles = objects.fileCollection();
+		this.manifestFile = objects.fileProperty();
+		this.hashingService = objects.property(OutputHashingService.class);
 	}
 
 	/**
@@ -50,14 +89,37 @@ public abstract class OutputVersionsTask extends DefaultTask {
 	}
 
 	/**
-	 * Gets the {@link #versionFile} for this task.
+	 * Gets the {@link #inputFiles} for this task.
+	 *
+	 * @return
+	 *         The {@link #inputFiles} for this task.
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.NAME_ONLY)
+	public ConfigurableFileCollection getInputFiles() {
+		return inputFiles;
+	}
+
+	/**
+	 * Gets the {@link #manifestFile} for this task.
 	 *
 	 * @return
-	 *         The {@link #versionFile} for this task.
+	 *         The {@link #manifestFile} for this task.
 	 */
 	@OutputFile
-	public RegularFileProperty getVersionFile() {
-		return versionFile;
+	public RegularFileProperty getManifestFile() {
+		return manifestFile;
+	}
+
+	/**
+	 * Gets the {@link #hashingService} for this task.
+	 *
+	 * @return
+	 *         The {@link #hashingService} for this task.
+	 */
+	@Internal
+	public Property<OutputHashingService> getHashingService() {
+		return hashingService;
 	}
 
 	/**
@@ -68,7 +130,7 @@ public abstract class OutputVersionsTask extends DefaultTask {
 	 */
 	@Override
 	public String getDescription() {
-		return "Prints the versions of WPILib to a file for use by the downstream packaging project.";
+		return "Writes the version, size and SHA-256 of every output to a manifest for the downstream packaging and combine jobs.";
 	}
 
 	/**
@@ -83,14 +145,101 @@ public abstract class OutputVersionsTask extends DefaultTask {
 	}
 
 	/**
-	 * Writes the {@link #version} to the {@link #versionFile}.
+	 * Hashes the {@link #inputFiles} and writes the manifest to the {@link #manifestFile}. The manifest is written to a temporary file
+	 * first, so readers never see a partial manifest.
 	 *
 	 * @throws IOException
-	 *                 If an IOException occurs while writing the file.
-	 * @see ResourceGroovyMethods#write(java.io.File, String)
+	 *                 If an IOException occurs while reading the files or writing the manifest.
 	 */
 	@TaskAction
 	public void execute() throws IOException {
-		ResourceGroovyMethods.write(versionFile.getAsFile().get(), version.get());
+		List<File> files = new ArrayList<File>();
+		for (File file : inputFiles) {
+			if (file.isFile()) {
+				files.add(file);
+			}
+		}
+		files.sort(Comparator.comparing(File::getName));
+
+		List<String> hashes = hashAll(files);
+
+		Path manifest = manifestFile.getAsFile().get().toPath();
+		Path tempFile = manifest.resolveSibling(String.format(".%s.tmp", manifest.getFileName()));
+		Files.createDirectories(manifest.getParent());
+		try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			writer.write(String.format("{\n\t\"version\": \"%s\",\n\t\"files\": [", JsonChecker.escape(version.get())));
+			for (int i = 0; i < files.size(); i++) {
+				File file = files.get(i);
+				writer.write(i == 0 ? "\n" : ",\n");
+				writer.write(String.format("\t\t{\"name\": \"%s\", \"size\": %d, \"sha256\": \"%s\"}", JsonChecker.escape(file.getName()), file.length(),
+						hashes.get(i)));
+			}
+			writer.write("\n\t]\n}\n");
+		}
+		Files.move(tempFile, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Hashes files in parallel, on the pool of the {@link #hashingService}.
+	 *
+	 * @param files
+	 *                The files to hash.
+	 * @return
+	 *         The lowercase hex SHA-256 of each file, in the same order as the files.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading a file.
+	 */
+	private List<String> hashAll(List<File> files) throws IOException {
+		List<String> hashes = new ArrayList<String>();
+		if (files.isEmpty()) {
+			return hashes;
+		}
+
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+		try {
+			for (File file : files) {
+				futures.add(hashingService.get().getExecutor().submit(() -> sha256(file.toPath())));
+			}
+			for (Future<String> future : futures) {
+				hashes.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GradleException("Interrupted while hashing the outputs.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new GradleException("Unable to hash the outputs.", e.getCause());
+		} finally {
+			// The pool is shared, so only the hashes of this task are cancelled
+			for (Future<String> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return hashes;
+	}
+
+	/**
+	 * Computes the SHA-256 of a file, streaming it through a fixed size buffer.
+	 *
+	 * @param file
+	 *                The file to hash.
+	 * @return
+	 *         The lowercase hex SHA-256 of the file.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading the file.
+	 * @throws NoSuchAlgorithmException
+	 *                 If SHA-256 isn't available.
+	 */
+	private static String sha256(Path file) throws IOException, NoSuchAlgorithmException {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream input = Files.newInputStream(file)) {
+			for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
 	}
 }
@@ -0,0 +1,402 @@
+package net.apollofops.first.vendortools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Assembles a Zip archive using a {@link ParallelZipWriter}. Files are added at their path relative to the directory they were added from,
+ * and single files are added at the root of the archive, or under the prefix they were added {@link #into(String, Object...) into}. Entries
+ * are compressed in parallel, at a level chosen by their file extension, so files that are already compressed are stored instead of being
+ * deflated again. The archive is written by a worker, so independent archive tasks can run at the same time, and the entries of every
+ * archive are compressed on the thread pool of the {@link ArchiveCompressionService}, which the plugins set for every task of this type.
+ * <p>
+ * This task is not a {@link org.gradle.api.tasks.bundling.Zip}, so build scripts configuring the VendorTools archives through
+ * {@code tasks.withType(Zip)} have to use {@code tasks.withType(ParallelZipTask)} instead.
+ */
+@CacheableTask
+public abstract class ParallelZipTask extends DefaultTask {
+	/**
+	 * The files and directories to add to the archive.
+	 */
+	private final ConfigurableFileCollection sources;
+	/**
+	 * The sources added under each prefix, in the same order as {@link #entryPrefixes}.
+	 */
+	private final List<ConfigurableFileCollection> prefixedSources = new ArrayList<ConfigurableFileCollection>();
+	/**
+	 * The prefixes the sources are added under.
+	 */
+	private final ListProperty<String> entryPrefixes;
+	/**
+	 * The archive file to write.
+	 */
+	private final RegularFileProperty archiveFile;
+	/**
+	 * The compression level used for entries without a level in {@link #compressionLevels}, from 0 (stored) to 9, or -1 for the default
+	 * level.
+	 */
+	private final Property<Integer> compressionLevel;
+	/**
+	 * The compression levels used for entries, by file extension.
+	 */
+	private final MapProperty<String, Integer> compressionLevels;
+	/**
+	 * The number of threads of the {@link #compressionService} this task keeps busy, which sets how many entries are compressed ahead of
+	 * the one being written.
+	 */
+	private final Property<Integer> maxThreads;
+	/**
+	 * The service holding the thread pool the entries are compressed on.
+	 */
+	private final Property<ArchiveCompressionService> compressionService;
+	/**
+	 * Writes every entry with a fixed timestamp and fixed permissions, so the archive only depends on the content of its entries.
+	 */
+	private final Property<Boolean> reproducible;
+	/**
+	 * Object factory used to create the prefixed source collections.
+	 */
+	private final ObjectFactory objects;
+	/**
+	 * Worker executor used to write the archive.
+	 */
+	private final WorkerExecutor workerExecutor;
+
+	/**
+	 * Creates a new ParallelZipTask.
+	 *
+	 * @param objects
+	 *                ObjectFactory used to create properties.
+	 * @param workerExecutor
+	 *                WorkerExecutor used to write the archive.
+	 */
+	@Inject
+	public ParallelZipTask(ObjectFactory objects, WorkerExecutor workerExecutor) {
+		this.objects = objects;
+		this.workerExecutor = workerExecutor;
+		this.sources = objects.fileCollection();
+		this.archiveFile = objects.fileProperty();
+		this.compressionLevel = objects.property(Integer.class);
+		this.compressionLevels = objects.mapProperty(String.class, Integer.class);
+		this.maxThreads = objects.property(Integer.class);
+		this.compressionService = objects.property(ArchiveCompressionService.class);
+		this.reproducible = objects.property(Boolean.class);
+		this.entryPrefixes = objects.listProperty(String.class);
+
+		// Defaults
+		maxThreads.convention(Runtime.getRuntime().availableProcessors());
+		reproducible.convention(false);
+	}
+
+	/**
+	 * Gets the {@link #sources} for this task.
+	 *
+	 * @return
+	 *         The {@link #sources} for this task.
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public ConfigurableFileCollection getSources() {
+		return sources;
+	}
+
+	/**
+	 * Gets the {@link #archiveFile} for this task.
+	 *
+	 * @return
+	 *         The {@link #archiveFile} for this task.
+	 */
+	@OutputFile
+	public RegularFileProperty getArchiveFile() {
+		return archiveFile;
+	}
+
+	/**
+	 * Gets the {@link #compressionLevel} for this task.
+	 *
+	 * @return
+	 *         The {@link #compressionLevel} for this task.
+	 */
+	@Input
+	public Property<Integer> getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Gets the {@link #compressionLevels} for this task.
+	 *
+	 * @return
+	 *         The {@link #compressionLevels} for this task.
+	 */
+	@Input
+	public MapProperty<String, Integer> getCompressionLevels() {
+		return compressionLevels;
+	}
+
+	/**
+	 * Gets the {@link #maxThreads} for this task.
+	 *
+	 * @return
+	 *         The {@link #maxThreads} for this task.
+	 */
+	@Internal
+	public Property<Integer> getMaxThreads() {
+		return maxThreads;
+	}
+
+	/**
+	 * Gets the {@link #compressionService} for this task.
+	 *
+	 * @return
+	 *         The {@link #compressionService} for this task.
+	 */
+	@Internal
+	public Property<ArchiveCompressionService> getCompressionService() {
+		return compressionService;
+	}
+
+	/**
+	 * Gets the {@link #reproducible} for this task.
+	 *
+	 * @return
+	 *         The {@link #reproducible} for this task.
+	 */
+	@Input
+	public Property<Boolean> getReproducible() {
+		return reproducible;
+	}
+
+	/**
+	 * Gets the {@link #entryPrefixes} for this task.
+	 *
+	 * @return
+	 *         The {@link #entryPrefixes} for this task.
+	 */
+	@Input
+	public ListProperty<String> getEntryPrefixes() {
+		return entryPrefixes;
+	}
+
+	/**
+	 * Adds files or directories to the {@link #sources}, at the root of the archive. Paths are resolved relative to the project directory.
+	 *
+	 * @param paths
+	 *                The files or directories to add.
+	 */
+	public void from(Object... paths) {
+		into("", paths);
+	}
+
+	/**
+	 * Adds files or directories to the {@link #sources}, under a prefix in the archive. Paths are resolved relative to the project
+	 * directory.
+	 *
+	 * @param prefix
+	 *                The directory in the archive to add the files under, or an empty string for the root.
+	 * @param paths
+	 *                The files or directories to add.
+	 */
+	public void into(String prefix, Object... paths) {
+		into(objects.property(String.class).value(prefix), paths);
+	}
+
+	/**
+	 * Adds files or directories to the {@link #sources}, under a prefix in the archive that is only known later. Paths are resolved
+	 * relative to the project directory.
+	 *
+	 * @param prefix
+	 *                Provider of the directory in the archive to add the files under, or an empty string for the root.
+	 * @param paths
+	 *                The files or directories to add.
+	 */
+	public void into(Provider<String> prefix, Object... paths) {
+		ConfigurableFileCollection prefixSources = objects.fileCollection().from(paths);
+		prefixedSources.add(prefixSources);
+		entryPrefixes.add(prefix.map((p) -> p.isEmpty() || p.endsWith("/") ? p : p + "/"));
+		sources.from(prefixSources);
+	}
+
+	/**
+	 * Uses the compression policy from a {@link VendordepExtension} for this task.
+	 *
+	 * @param extension
+	 *                The extension to read the compression policy from.
+	 */
+	public void compressionFrom(VendordepExtension extension) {
+		compressionLevel.set(extension.getCompressionLevel());
+		compressionLevels.set(extension.getCompressionLevels());
+	}
+
+	/**
+	 * Lists the {@link #sources} and submits a worker to write them to the {@link #archiveFile}. Entries are sorted by path, so the order
+	 * doesn't depend on the file system, and the parent directories of every entry are added. If {@link #reproducible} is enabled, the
+	 * timestamps and permissions of the files are replaced with fixed values.
+	 */
+	@TaskAction
+	public void execute() {
+		boolean normalize = reproducible.get();
+		int filePermissions = Integer.parseInt(ParallelZipWriter.REPRODUCIBLE_FILE_PERMISSIONS, 8);
+		int directoryPermissions = Integer.parseInt(ParallelZipWriter.REPRODUCIBLE_DIRECTORY_PERMISSIONS, 8);
+		List<ParallelZipWriter.Entry> entries = new ArrayList<ParallelZipWriter.Entry>();
+		Set<String> directories = new HashSet<String>();
+
+		List<String> prefixes = entryPrefixes.get();
+		for (int i = 0; i < prefixedSources.size(); i++) {
+			String prefix = prefixes.get(i);
+			prefixedSources.get(i).getAsFileTree().visit(details -> {
+				String name = prefix + details.getRelativePath().getPathString();
+				long lastModified = normalize ? ParallelZipWriter.REPRODUCIBLE_TIMESTAMP : details.getLastModified();
+				if (details.isDirectory()) {
+					int permissions = normalize ? directoryPermissions : details.getPermissions().toUnixNumeric();
+					if (directories.add(name + "/")) {
+						entries.add(new ParallelZipWriter.Entry(name + "/", null, lastModified, permissions));
+					}
+				} else {
+					int permissions = normalize ? filePermissions : details.getPermissions().toUnixNumeric();
+					entries.add(new ParallelZipWriter.Entry(name, details.getFile(), lastModified, permissions));
+				}
+			});
+		}
+
+		// Add the parent directories that weren't visited, such as the ones making up a prefix
+		for (ParallelZipWriter.Entry entry : new ArrayList<ParallelZipWriter.Entry>(entries)) {
+			String name = entry.getName();
+			for (int slash = name.indexOf('/'); slash >= 0 && slash < name.length() - 1; slash = name.indexOf('/', slash + 1)) {
+				String directory = name.substring(0, slash + 1);
+				if (directories.add(directory)) {
+					entries.add(new ParallelZipWriter.Entry(directory, null, ParallelZipWriter.REPRODUCIBLE_TIMESTAMP, directoryPermissions));
+				}
+			}
+		}
+		entries.sort(Comparator.comparing(ParallelZipWriter.Entry::getName));
+
+		workerExecutor.noIsolation().submit(ZipAction.class, parameters -> {
+			parameters.getArchiveFile().set(archiveFile);
+			parameters.getEntries().set(entries);
+			parameters.getCompressionLevel().set(compressionLevel);
+			parameters.getCompressionLevels().set(compressionLevels);
+			parameters.getMaxThreads().set(maxThreads);
+			parameters.getCompressionService().set(compressionService);
+			parameters.getTemporaryFolder().set(getTemporaryDir());
+		});
+	}
+
+	/**
+	 * Parameters for a {@link ZipAction}.
+	 */
+	public interface ZipParameters extends WorkParameters {
+		/**
+		 * Gets the archive file to write.
+		 *
+		 * @return
+		 *         The archive file.
+		 */
+		RegularFileProperty getArchiveFile();
+
+		/**
+		 * Gets the entries to write, in order.
+		 *
+		 * @return
+		 *         The entries.
+		 */
+		ListProperty<ParallelZipWriter.Entry> getEntries();
+
+		/**
+		 * Gets the compression level used for entries without a level in {@link #getCompressionLevels()}.
+		 *
+		 * @return
+		 *         The default compression level.
+		 */
+		Property<Integer> getCompressionLevel();
+
+		/**
+		 * Gets the compression levels used for entries, by file extension.
+		 *
+		 * @return
+		 *         The compression levels.
+		 */
+		MapProperty<String, Integer> getCompressionLevels();
+
+		/**
+		 * Gets the number of threads of the compression service to keep busy.
+		 *
+		 * @return
+		 *         The number of threads.
+		 */
+		Property<Integer> getMaxThreads();
+
+		/**
+		 * Gets the service holding the thread pool the entries are compressed on.
+		 *
+		 * @return
+		 *         The compression service.
+		 */
+		Property<ArchiveCompressionService> getCompressionService();
+
+		/**
+		 * Gets the folder large entries are compressed into before they are written.
+		 *
+		 * @return
+		 *         The temporary folder.
+		 */
+		DirectoryProperty getTemporaryFolder();
+	}
+
+	/**
+	 * Writes an archive with a {@link ParallelZipWriter}.
+	 */
+	public abstract static class ZipAction implements WorkAction<ZipParameters> {
+		/**
+		 * Writes the archive.
+		 */
+		@Override
+		public void execute() {
+			Map<String, Integer> levels = getParameters().getCompressionLevels().get();
+			int defaultLevel = getParameters().getCompressionLevel().get();
+			ParallelZipWriter writer = new ParallelZipWriter(getParameters().getCompressionService().get().getExecutor(),
+					getParameters().getMaxThreads().get(), (name) -> {
+				int extensionIndex = name.lastIndexOf('.');
+				if (extensionIndex < 0 || extensionIndex < name.lastIndexOf('/')) {
+					return defaultLevel;
+				}
+				return levels.getOrDefault(name.substring(extensionIndex + 1).toLowerCase(Locale.ROOT), defaultLevel);
+			}, getParameters().getTemporaryFolder().get().getAsFile().toPath());
+
+			try {
+				writer.write(getParameters().getArchiveFile().get().getAsFile().toPath(), getParameters().getEntries().get());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,839 @@
+package net.apollofops.first.vendortools;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a zip file, compressing its entries in parallel. Each entry is compressed on a shared executor, and the compressed entries are
+ * written to the file in order, so the result is a single standard zip file. Entries compressed at level 0 are stored, and are read once,
+ * straight from their source file, when they are written. Zip64 records are written when the archive needs them.
+ * <p>
+ * The compressed entries waiting to be written are kept in memory up to {@link #MAX_BUFFERED_BYTES}, and entries larger than
+ * {@link #SPILL_THRESHOLD} are compressed into a temporary file instead, so memory use doesn't depend on the size of the entries. The
+ * archive is written to a temporary file next to it and only moved into place once it is complete, so a failed write never leaves a
+ * partial archive behind.
+ */
+public final class ParallelZipWriter {
+	/**
+	 * The timestamp used for the entries of reproducible archives. This is the same as the one Gradle uses, 1980-02-01 00:00 local time,
+	 * which is stored the same way in every time zone.
+	 */
+	public static final long REPRODUCIBLE_TIMESTAMP = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+	/**
+	 * The Unix permissions used for the files of reproducible archives.
+	 */
+	public static final String REPRODUCIBLE_FILE_PERMISSIONS = "0644";
+	/**
+	 * The Unix permissions used for the directories of reproducible archives.
+	 */
+	public static final String REPRODUCIBLE_DIRECTORY_PERMISSIONS = "0755";
+
+	/**
+	 * The size of the buffer used to read and write files.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/**
+	 * The size above which an entry is compressed into a temporary file instead of into memory.
+	 */
+	private static final long SPILL_THRESHOLD = 4 * 1024 * 1024;
+	/**
+	 * The most bytes of compressed entries kept in memory while waiting to be written, unless a single entry is larger.
+	 */
+	private static final long MAX_BUFFERED_BYTES = 64 * 1024 * 1024;
+	/**
+	 * The offset of the CRC-32 field in a local file header.
+	 */
+	private static final int LOCAL_HEADER_CRC_OFFSET = 14;
+	/**
+	 * The largest value that fits in a 16 bit zip field.
+	 */
+	private static final int ZIP16_MAX = 0xFFFF;
+	/**
+	 * The largest value that fits in a 32 bit zip field.
+	 */
+	private static final long ZIP32_MAX = 0xFFFFFFFFL;
+	/**
+	 * The general purpose flag marking entry names as UTF-8.
+	 */
+	private static final int UTF8_FLAG = 0x0800;
+	/**
+	 * The Unix file type bits for a regular file.
+	 */
+	private static final int UNIX_FILE = 0100000;
+	/**
+	 * The Unix file type bits for a directory.
+	 */
+	private static final int UNIX_DIRECTORY = 040000;
+
+	/**
+	 * The executor used to compress entries.
+	 */
+	private final ExecutorService executor;
+	/**
+	 * The most entries being compressed or waiting to be written at once.
+	 */
+	private final int window;
+	/**
+	 * Gets the compression level for an entry name, from 0 (stored) to 9.
+	 */
+	private final ToIntFunction<String> compressionLevel;
+	/**
+	 * The folder large entries are compressed into.
+	 */
+	private final Path temporaryFolder;
+
+	/**
+	 * Creates a new ParallelZipWriter.
+	 *
+	 * @param executor
+	 *                The executor used to compress entries. It is not shut down by the writer, so it can be shared.
+	 * @param threads
+	 *                The number of threads of the executor this writer should keep busy.
+	 * @param compressionLevel
+	 *                Gets the compression level for an entry name, from 0 (stored) to 9.
+	 * @param temporaryFolder
+	 *                The folder large entries are compressed into.
+	 */
+	public ParallelZipWriter(ExecutorService executor, int threads, ToIntFunction<String> compressionLevel, Path temporaryFolder) {
+		this.executor = executor;
+		this.window = Math.max(1, threads) * 4;
+		this.compressionLevel = compressionLevel;
+		this.temporaryFolder = temporaryFolder;
+	}
+
+	/**
+	 * Writes a zip file containing the given entries, in the order given. If writing fails, neither the partial archive nor an older
+	 * archive at the same path is left behind.
+	 *
+	 * @param zipFile
+	 *                The zip file to write.
+	 * @param entries
+	 *                The entries to write.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading an entry or writing the file.
+	 */
+	public void write(Path zipFile, List<Entry> entries) throws IOException {
+		Files.createDirectories(zipFile.getParent());
+		Files.createDirectories(temporaryFolder);
+		Path partFile = zipFile.resolveSibling(zipFile.getFileName() + ".part");
+
+		try {
+			try (ZipOutput output = new ZipOutput(FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.WRITE))) {
+				writeEntries(output, zipFile, entries);
+			}
+			try {
+				Files.move(partFile, zipFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(partFile, zipFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(partFile);
+			Files.deleteIfExists(zipFile);
+			throw e;
+		}
+	}
+
+	/**
+	 * Compresses the entries and writes them to the archive. A window of entries is compressed ahead of the one being written, bounded
+	 * both by the number of entries and by the bytes they hold in memory.
+	 *
+	 * @param output
+	 *                The archive to write to.
+	 * @param zipFile
+	 *                The zip file being written, for error messages.
+	 * @param entries
+	 *                The entries to write.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading an entry or writing the file.
+	 */
+	private void writeEntries(ZipOutput output, Path zipFile, List<Entry> entries) throws IOException {
+		Deque<Future<CompressedEntry>> pending = new ArrayDeque<Future<CompressedEntry>>();
+		Deque<Long> pendingBytes = new ArrayDeque<Long>();
+		long bufferedBytes = 0;
+
+		try {
+			for (Entry entry : entries) {
+				int level = entry.isDirectory() ? Deflater.NO_COMPRESSION : compressionLevel.applyAsInt(entry.getName());
+				long bytes = level == Deflater.NO_COMPRESSION ? 0 : Math.min(entry.getFile().length(), SPILL_THRESHOLD);
+				while (!pending.isEmpty() && (pending.size() >= window || bufferedBytes + bytes > MAX_BUFFERED_BYTES)) {
+					writeNext(output, pending);
+					bufferedBytes -= pendingBytes.remove();
+				}
+				pending.add(executor.submit(() -> compress(entry, level)));
+				pendingBytes.add(bytes);
+				bufferedBytes += bytes;
+			}
+			while (!pending.isEmpty()) {
+				writeNext(output, pending);
+			}
+
+			output.finish();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing " + zipFile, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Unable to compress an entry of " + zipFile, e.getCause());
+		} finally {
+			discard(pending);
+		}
+	}
+
+	/**
+	 * Waits for the oldest pending entry to be compressed and writes it. The entry stays pending until it has been compressed, so it is
+	 * still discarded if compressing it fails.
+	 *
+	 * @param output
+	 *                The archive to write to.
+	 * @param pending
+	 *                The entries being compressed, oldest first.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing.
+	 * @throws InterruptedException
+	 *                 If the thread is interrupted while waiting.
+	 * @throws ExecutionException
+	 *                 If compressing the entry failed.
+	 */
+	private static void writeNext(ZipOutput output, Deque<Future<CompressedEntry>> pending)
+			throws IOException, InterruptedException, ExecutionException {
+		CompressedEntry compressed = pending.element().get();
+		pending.remove();
+		try {
+			output.writeEntry(compressed);
+		} finally {
+			compressed.deleteSpillFile();
+		}
+	}
+
+	/**
+	 * Discards the entries that were compressed but not written, deleting their temporary files. Entries that haven't started compressing
+	 * are cancelled, and the ones being compressed are waited for, so they don't leave temporary files behind.
+	 *
+	 * @param pending
+	 *                The entries that weren't written.
+	 */
+	private static void discard(Deque<Future<CompressedEntry>> pending) {
+		for (Future<CompressedEntry> future : pending) {
+			future.cancel(false);
+		}
+		for (Future<CompressedEntry> future : pending) {
+			try {
+				if (!future.isCancelled()) {
+					future.get().deleteSpillFile();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException | IOException e) {
+				// The entry failed or its file is already gone, so there is nothing to clean up
+			}
+		}
+	}
+
+	/**
+	 * Compresses an entry. Stored entries are only sized here, since they are read when they are written, and entries larger than
+	 * {@link #SPILL_THRESHOLD} are compressed into a temporary file.
+	 *
+	 * @param entry
+	 *                The entry to compress.
+	 * @param level
+	 *                The compression level of the entry.
+	 * @return
+	 *         The compressed entry.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading the entry or writing the temporary file.
+	 */
+	private CompressedEntry compress(Entry entry, int level) throws IOException {
+		if (entry.isDirectory()) {
+			return new CompressedEntry(entry, level, 0, 0, 0, null, null);
+		}
+
+		Path source = entry.getFile().toPath();
+		long sourceSize = Files.size(source);
+		if (level == Deflater.NO_COMPRESSION) {
+			return new CompressedEntry(entry, level, 0, sourceSize, sourceSize, null, null);
+		}
+
+		Path spillFile = sourceSize > SPILL_THRESHOLD ? Files.createTempFile(temporaryFolder, "entry", ".deflate") : null;
+		ByteArrayOutputStream memory = spillFile == null ? new ByteArrayOutputStream((int) Math.min(sourceSize, SPILL_THRESHOLD)) : null;
+		Deflater deflater = new Deflater(level, true);
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		byte[] output = new byte[BUFFER_SIZE];
+		long size = 0;
+		long compressedSize = 0;
+		try (InputStream input = Files.newInputStream(source);
+				OutputStream compressed = spillFile != null ? new BufferedOutputStream(Files.newOutputStream(spillFile), BUFFER_SIZE) : memory) {
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				crc.update(buffer, 0, read);
+				size += read;
+				deflater.setInput(buffer, 0, read);
+				while (!deflater.needsInput()) {
+					int length = deflater.deflate(output);
+					compressed.write(output, 0, length);
+					compressedSize += length;
+				}
+			}
+			deflater.finish();
+			while (!deflater.finished()) {
+				int length = deflater.deflate(output);
+				compressed.write(output, 0, length);
+				compressedSize += length;
+			}
+		} catch (IOException | RuntimeException e) {
+			if (spillFile != null) {
+				Files.deleteIfExists(spillFile);
+			}
+			throw e;
+		} finally {
+			deflater.end();
+		}
+		return new CompressedEntry(entry, level, crc.getValue(), size, compressedSize, memory != null ? memory.toByteArray() : null, spillFile);
+	}
+
+	/**
+	 * An entry to write to a zip file.
+	 */
+	public static final class Entry implements Serializable {
+		/**
+		 * Serialization version, so entries can be passed to workers.
+		 */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The name of the entry. Directory names end with a slash.
+		 */
+		private final String name;
+		/**
+		 * The file to read the entry from, or {@code null} for a directory.
+		 */
+		private final File file;
+		/**
+		 * The modification time of the entry, in milliseconds since the epoch.
+		 */
+		private final long lastModified;
+		/**
+		 * The Unix permissions of the entry.
+		 */
+		private final int permissions;
+
+		/**
+		 * Creates a new Entry.
+		 *
+		 * @param name
+		 *                The name of the entry. Directory names end with a slash.
+		 * @param file
+		 *                The file to read the entry from, or {@code null} for a directory.
+		 * @param lastModified
+		 *                The modification time of the entry, in milliseconds since the epoch.
+		 * @param permissions
+		 *                The Unix permissions of the entry.
+		 */
+		public Entry(String name, File file, long lastModified, int permissions) {
+			this.name = name;
+			this.file = file;
+			this.lastModified = lastModified;
+			this.permissions = permissions;
+		}
+
+		/**
+		 * Gets the {@link #name}.
+		 *
+		 * @return
+		 *         The {@link #name} of this entry.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the {@link #file}.
+		 *
+		 * @return
+		 *         The {@link #file} of this entry.
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Gets whether this entry is a directory.
+		 *
+		 * @return
+		 *         {@code true} if this entry is a directory.
+		 */
+		public boolean isDirectory() {
+			return file == null;
+		}
+	}
+
+	/**
+	 * An entry that has been compressed and is ready to write.
+	 */
+	private static final class CompressedEntry {
+		/**
+		 * The entry.
+		 */
+		private final Entry entry;
+		/**
+		 * The compression level of the entry.
+		 */
+		private final int level;
+		/**
+		 * The CRC-32 of the uncompressed data, or 0 if the entry is stored and its CRC is computed while it is written.
+		 */
+		private final long crc;
+		/**
+		 * The size of the uncompressed data.
+		 */
+		private final long size;
+		/**
+		 * The size of the compressed data.
+		 */
+		private final long compressedSize;
+		/**
+		 * The compressed data, or {@code null} if the entry is stored or was compressed into the {@link #spillFile}.
+		 */
+		private final byte[] data;
+		/**
+		 * The temporary file holding the compressed data, or {@code null} if the entry is stored or was compressed into {@link #data}.
+		 */
+		private final Path spillFile;
+
+		/**
+		 * Creates a new CompressedEntry.
+		 *
+		 * @param entry
+		 *                The entry.
+		 * @param level
+		 *                The compression level of the entry.
+		 * @param crc
+		 *                The CRC-32 of the uncompressed data, or 0 if the entry is stored.
+		 * @param size
+		 *                The size of the uncompressed data.
+		 * @param compressedSize
+		 *                The size of the compressed data.
+		 * @param data
+		 *                The compressed data, or {@code null} if the entry is stored or was compressed into the spill file.
+		 * @param spillFile
+		 *                The temporary file holding the compressed data, or {@code null} if the entry is stored or was compressed into
+		 *                memory.
+		 */
+		private CompressedEntry(Entry entry, int level, long crc, long size, long compressedSize, byte[] data, Path spillFile) {
+			this.entry = entry;
+			this.level = level;
+			this.crc = crc;
+			this.size = size;
+			this.compressedSize = compressedSize;
+			this.data = data;
+			this.spillFile = spillFile;
+		}
+
+		/**
+		 * Gets whether the entry is stored without compression.
+		 *
+		 * @return
+		 *         {@code true} if the entry is stored.
+		 */
+		private boolean isStored() {
+			return level == Deflater.NO_COMPRESSION;
+		}
+
+		/**
+		 * Deletes the {@link #spillFile}, if there is one.
+		 *
+		 * @throws IOException
+		 *                 If an IOException occurs while deleting the file.
+		 */
+		private void deleteSpillFile() throws IOException {
+			if (spillFile != null) {
+				Files.deleteIfExists(spillFile);
+			}
+		}
+	}
+
+	/**
+	 * Writes the zip file structure, keeping track of the central directory. Writes are buffered, and flushed before the file channel is
+	 * used directly.
+	 */
+	private static final class ZipOutput implements AutoCloseable {
+		/**
+		 * The channel to write to.
+		 */
+		private final FileChannel channel;
+		/**
+		 * The bytes waiting to be written to the {@link #channel}.
+		 */
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		/**
+		 * The central directory records, written when the file is finished.
+		 */
+		private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+		/**
+		 * The number of entries written.
+		 */
+		private long entryCount;
+		/**
+		 * The number of bytes written.
+		 */
+		private long offset;
+
+		/**
+		 * Creates a new ZipOutput.
+		 *
+		 * @param channel
+		 *                The channel to write to.
+		 */
+		private ZipOutput(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Writes an entry's local header and data, and adds its central directory record. The data of stored entries is copied from their
+		 * file here, and their CRC-32 is filled into the local header afterwards.
+		 *
+		 * @param compressed
+		 *                The entry to write.
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void writeEntry(CompressedEntry compressed) throws IOException {
+			Entry entry = compressed.entry;
+			byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+			int method = compressed.isStored() ? 0 : Deflater.DEFLATED;
+			long dosTime = toDosTime(entry.lastModified);
+			long localOffset = offset;
+			boolean zip64Sizes = compressed.size >= ZIP32_MAX || compressed.compressedSize >= ZIP32_MAX;
+			boolean zip64Offset = localOffset >= ZIP32_MAX;
+			int versionNeeded = zip64Sizes || zip64Offset ? 45 : 20;
+
+			// Local file header
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			writeInt(header, 0x04034b50);
+			writeShort(header, versionNeeded);
+			writeShort(header, UTF8_FLAG);
+			writeShort(header, method);
+			writeInt(header, dosTime);
+			writeInt(header, compressed.crc);
+			writeInt(header, zip64Sizes ? ZIP32_MAX : compressed.compressedSize);
+			writeInt(header, zip64Sizes ? ZIP32_MAX : compressed.size);
+			writeShort(header, name.length);
+			writeShort(header, zip64Sizes ? 20 : 0);
+			header.write(name);
+			if (zip64Sizes) {
+				writeShort(header, 0x0001);
+				writeShort(header, 16);
+				writeLong(header, compressed.size);
+				writeLong(header, compressed.compressedSize);
+			}
+			write(header.toByteArray(), 0, header.size());
+
+			// Entry data
+			long crc = compressed.crc;
+			if (compressed.data != null) {
+				write(compressed.data, 0, compressed.data.length);
+			} else if (compressed.spillFile != null) {
+				transfer(compressed.spillFile, compressed.compressedSize);
+			} else if (!entry.isDirectory()) {
+				crc = writeStored(entry.getFile().toPath(), compressed.size);
+				patchInt(localOffset + LOCAL_HEADER_CRC_OFFSET, crc);
+			}
+
+			// Central directory record
+			ByteArrayOutputStream extra = new ByteArrayOutputStream();
+			if (zip64Sizes || zip64Offset) {
+				writeShort(extra, 0x0001);
+				writeShort(extra, (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0));
+				if (zip64Sizes) {
+					writeLong(extra, compressed.size);
+					writeLong(extra, compressed.compressedSize);
+				}
+				if (zip64Offset) {
+					writeLong(extra, localOffset);
+				}
+			}
+			int fileType = entry.isDirectory() ? UNIX_DIRECTORY : UNIX_FILE;
+			long externalAttributes = ((long) (fileType | entry.permissions) << 16) | (entry.isDirectory() ? 0x10 : 0);
+
+			writeInt(centralDirectory, 0x02014b50);
+			writeShort(centralDirectory, (3 << 8) | versionNeeded);
+			writeShort(centralDirectory, versionNeeded);
+			writeShort(centralDirectory, UTF8_FLAG);
+			writeShort(centralDirectory, method);
+			writeInt(centralDirectory, dosTime);
+			writeInt(centralDirectory, crc);
+			writeInt(centralDirectory, zip64Sizes ? ZIP32_MAX : compressed.compressedSize);
+			writeInt(centralDirectory, zip64Sizes ? ZIP32_MAX : compressed.size);
+			writeShort(centralDirectory, name.length);
+			writeShort(centralDirectory, extra.size());
+			writeShort(centralDirectory, 0);
+			writeShort(centralDirectory, 0);
+			writeShort(centralDirectory, 0);
+			writeInt(centralDirectory, externalAttributes);
+			writeInt(centralDirectory, zip64Offset ? ZIP32_MAX : localOffset);
+			centralDirectory.write(name);
+			extra.writeTo(centralDirectory);
+
+			entryCount++;
+		}
+
+		/**
+		 * Writes the central directory and the end of central directory records.
+		 *
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void finish() throws IOException {
+			long centralDirectoryOffset = offset;
+			long centralDirectorySize = centralDirectory.size();
+			write(centralDirectory.toByteArray(), 0, centralDirectory.size());
+
+			ByteArrayOutputStream end = new ByteArrayOutputStream();
+			boolean zip64 = entryCount >= ZIP16_MAX || centralDirectoryOffset >= ZIP32_MAX || centralDirectorySize >= ZIP32_MAX;
+			if (zip64) {
+				long zip64EndOffset = offset;
+
+				// Zip64 end of central directory record
+				writeInt(end, 0x06064b50);
+				writeLong(end, 44);
+				writeShort(end, (3 << 8) | 45);
+				writeShort(end, 45);
+				writeInt(end, 0);
+				writeInt(end, 0);
+				writeLong(end, entryCount);
+				writeLong(end, entryCount);
+				writeLong(end, centralDirectorySize);
+				writeLong(end, centralDirectoryOffset);
+
+				// Zip64 end of central directory locator
+				writeInt(end, 0x07064b50);
+				writeInt(end, 0);
+				writeLong(end, zip64EndOffset);
+				writeInt(end, 1);
+			}
+
+			// End of central directory record
+			writeInt(end, 0x06054b50);
+			writeShort(end, 0);
+			writeShort(end, 0);
+			writeShort(end, zip64 ? ZIP16_MAX : (int) entryCount);
+			writeShort(end, zip64 ? ZIP16_MAX : (int) entryCount);
+			writeInt(end, zip64 ? ZIP32_MAX : centralDirectorySize);
+			writeInt(end, zip64 ? ZIP32_MAX : centralDirectoryOffset);
+			writeShort(end, 0);
+			write(end.toByteArray(), 0, end.size());
+			flush();
+		}
+
+		/**
+		 * Copies a stored entry from its file, computing its CRC-32 on the way.
+		 *
+		 * @param file
+		 *                The file to copy.
+		 * @param size
+		 *                The size the file had when the entry was sized.
+		 * @return
+		 *         The CRC-32 of the file.
+		 * @throws IOException
+		 *                 If an IOException occurs while copying, or if the size of the file changed.
+		 */
+		private long writeStored(Path file, long size) throws IOException {
+			CRC32 crc = new CRC32();
+			long copied = 0;
+			try (InputStream input = Files.newInputStream(file)) {
+				byte[] bytes = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = input.read(bytes)) != -1) {
+					crc.update(bytes, 0, read);
+					write(bytes, 0, read);
+					copied += read;
+				}
+			}
+			if (copied != size) {
+				throw new IOException(String.format("%s changed while it was being archived.", file));
+			}
+			return crc.getValue();
+		}
+
+		/**
+		 * Copies a file to the channel with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+		 *
+		 * @param file
+		 *                The file to copy.
+		 * @param size
+		 *                The size of the file.
+		 * @throws IOException
+		 *                 If an IOException occurs while copying.
+		 */
+		private void transfer(Path file, long size) throws IOException {
+			flush();
+			try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+				long position = 0;
+				while (position < size) {
+					position += input.transferTo(position, size - position, channel);
+				}
+			}
+			offset += size;
+		}
+
+		/**
+		 * Overwrites a little-endian 32 bit value that has already been written.
+		 *
+		 * @param position
+		 *                The position of the value in the file.
+		 * @param value
+		 *                The value to write.
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void patchInt(long position, long value) throws IOException {
+			flush();
+			ByteBuffer bytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) value);
+			bytes.flip();
+			while (bytes.hasRemaining()) {
+				channel.write(bytes, position + bytes.position());
+			}
+		}
+
+		/**
+		 * Writes bytes to the file.
+		 *
+		 * @param bytes
+		 *                The bytes to write.
+		 * @param start
+		 *                The index of the first byte to write.
+		 * @param length
+		 *                The number of bytes to write.
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void write(byte[] bytes, int start, int length) throws IOException {
+			int written = 0;
+			while (written < length) {
+				if (!buffer.hasRemaining()) {
+					flush();
+				}
+				int count = Math.min(buffer.remaining(), length - written);
+				buffer.put(bytes, start + written, count);
+				written += count;
+			}
+			offset += length;
+		}
+
+		/**
+		 * Writes the buffered bytes to the channel.
+		 *
+		 * @throws IOException
+		 *                 If an IOException occurs while writing.
+		 */
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Closes the file.
+		 *
+		 * @throws IOException
+		 *                 If an IOException occurs while closing.
+		 */
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+		/**
+		 * Converts a time to the MS-DOS date and time format used by zip files, in the local time zone.
+		 *
+		 * @param time
+		 *                The time in milliseconds since the epoch.
+		 * @return
+		 *         The MS-DOS date and time.
+		 */
+		private static long toDosTime(long time) {
+			LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+			if (dateTime.getYear() < 1980) {
+				return (1 << 21) | (1 << 16);
+			}
+			return ((long) (dateTime.getYear() - 1980) << 25)
+					| ((long) dateTime.getMonthValue() << 21)
+					| ((long) dateTime.getDayOfMonth() << 16)
+					| ((long) dateTime.getHour() << 11)
+					| ((long) dateTime.getMinute() << 5)
+					| ((long) dateTime.getSecond() >> 1);
+		}
+
+		/**
+		 * Writes a little-endian 16 bit value.
+		 *
+		 * @param output
+		 *                The stream to write to.
+		 * @param value
+		 *                The value to write.
+		 */
+		private static void writeShort(ByteArrayOutputStream output, int value) {
+			output.write(value & 0xFF);
+			output.write((value >> 8) & 0xFF);
+		}
+
+		/**
+		 * Writes a little-endian 32 bit value.
+		 *
+		 * @param output
+		 *                The stream to write to.
+		 * @param value
+		 *                The value to write.
+		 */
+		private static void writeInt(ByteArrayOutputStream output, long value) {
+			writeShort(output, (int) (value & 0xFFFF));
+			writeShort(output, (int) ((value >> 16) & 0xFFFF));
+		}
+
+		/**
+		 * Writes a little-endian 64 bit value.
+		 *
+		 * @param output
+		 *                The stream to write to.
+		 * @param value
+		 *                The value to write.
+		 */
+		private static void writeLong(ByteArrayOutputStream output, long value) {
+			writeInt(output, value & ZIP32_MAX);
+			writeInt(output, (value >> 32) & ZIP32_MAX);
+		}
+	}
+}
@@ -0,0 +1,363 @@
+package net.apollofops.first.vendortools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+
+/**
+ * Build service that records metrics for the tasks registered by VendorTools, and writes them to a JSON report at the end of the build.
+ * Everything is recorded from the task completion events, so the tasks themselves are left untouched. The number and size of the input
+ * and output files are measured once a task has finished, whatever its outcome, so tasks that were up to date or loaded from the build
+ * cache are measured as well.
+ * <p>
+ * The tasks to record are collected while the build is configured, and the service parameters read them through providers, which are only
+ * queried once the task graph is ready, so the parameters are never changed after the service is registered.
+ */
+public abstract class TaskMetricsService implements BuildService<TaskMetricsService.Params>, OperationCompletionListener, AutoCloseable {
+	/**
+	 * The name the service is registered under.
+	 */
+	public static final String SERVICE_NAME = "vendorToolsTaskMetrics";
+
+	/**
+	 * The parameters of the service.
+	 */
+	public interface Params extends BuildServiceParameters {
+		/**
+		 * Gets the file the report is written to.
+		 *
+		 * @return
+		 *         The report file.
+		 */
+		RegularFileProperty getReportFile();
+
+		/**
+		 * Gets the paths of the tasks to record.
+		 *
+		 * @return
+		 *         The task paths.
+		 */
+		SetProperty<String> getTaskPaths();
+
+		/**
+		 * Gets the input files of the tasks to record, by task path.
+		 *
+		 * @return
+		 *         The input files.
+		 */
+		MapProperty<String, ConfigurableFileCollection> getInputFiles();
+
+		/**
+		 * Gets the output files of the tasks to record, by task path.
+		 *
+		 * @return
+		 *         The output files.
+		 */
+		MapProperty<String, ConfigurableFileCollection> getOutputFiles();
+	}
+
+	/**
+	 * The metrics recorded so far, by task path.
+	 */
+	private final Map<String, TaskMetrics> metrics = new ConcurrentHashMap<String, TaskMetrics>();
+
+	/**
+	 * Registers the service for the build, if it isn't registered already, and subscribes it to task completion events.
+	 *
+	 * @param project
+	 *                The project registering the service.
+	 * @param listenerRegistry
+	 *                The registry used to subscribe to task completion events.
+	 * @return
+	 *         A provider of the service.
+	 */
+	public static Provider<TaskMetricsService> register(Project project, BuildEventsListenerRegistry listenerRegistry) {
+		Gradle gradle = project.getGradle();
+		boolean registered = gradle.getSharedServices().getRegistrations().findByName(SERVICE_NAME) != null;
+		TrackedTasks trackedTasks = TrackedTasks.of(gradle);
+		ProviderFactory providers = project.getProviders();
+		ObjectFactory objects = project.getObjects();
+		Provider<TaskMetricsService> service = gradle.getSharedServices().registerIfAbsent(SERVICE_NAME, TaskMetricsService.class, spec -> {
+			spec.getParameters().getReportFile()
+					.set(project.getRootProject().getLayout().getBuildDirectory().file("reports/vendortools/task-metrics.json"));
+			spec.getParameters().getTaskPaths().set(providers.provider(() -> trackedTasks.getScheduledTasks(gradle).keySet()));
+			spec.getParameters().getInputFiles().set(providers.provider(() -> trackedTasks.getScheduledFiles(gradle, objects, (task) -> task.getInputs().getFiles())));
+			spec.getParameters().getOutputFiles().set(providers.provider(() -> trackedTasks.getScheduledFiles(gradle, objects, (task) -> task.getOutputs().getFiles())));
+		});
+		if (!registered) {
+			listenerRegistry.onTaskCompletion(service);
+		}
+		return service;
+	}
+
+	/**
+	 * Records metrics for tasks. The service must have been {@link #register(Project, BuildEventsListenerRegistry) registered}.
+	 *
+	 * @param project
+	 *                The project the tasks belong to.
+	 * @param tasks
+	 *                The tasks to record metrics for.
+	 */
+	public static void track(Project project, TaskProvider<?>... tasks) {
+		TrackedTasks trackedTasks = TrackedTasks.of(project.getGradle());
+		for (TaskProvider<?> task : tasks) {
+			trackedTasks.paths.add(project.absoluteProjectPath(task.getName()));
+		}
+	}
+
+	/**
+	 * Records the wall time and outcome of a finished task, along with the number and size of its input and output files.
+	 *
+	 * @param event
+	 *                The finish event.
+	 */
+	@Override
+	public void onFinish(FinishEvent event) {
+		if (!(event instanceof TaskFinishEvent)) {
+			return;
+		}
+		TaskFinishEvent taskEvent = (TaskFinishEvent) event;
+		String path = taskEvent.getDescriptor().getTaskPath();
+		if (!getParameters().getTaskPaths().get().contains(path)) {
+			return;
+		}
+
+		TaskOperationResult result = taskEvent.getResult();
+		TaskMetrics taskMetrics = metrics.computeIfAbsent(path, TaskMetrics::new);
+		taskMetrics.durationMillis = result.getEndTime() - result.getStartTime();
+		if (result instanceof TaskFailureResult) {
+			taskMetrics.outcome = "failed";
+			return;
+		} else if (result instanceof TaskSkippedResult) {
+			taskMetrics.outcome = "skipped";
+			return;
+		} else if (result instanceof TaskSuccessResult && ((TaskSuccessResult) result).isFromCache()) {
+			taskMetrics.outcome = "from-cache";
+		} else if (result instanceof TaskSuccessResult && ((TaskSuccessResult) result).isUpToDate()) {
+			taskMetrics.outcome = "up-to-date";
+		} else {
+			taskMetrics.outcome = "executed";
+		}
+
+		long[] inputTotals = measure(getParameters().getInputFiles().get().get(path));
+		long[] outputTotals = measure(getParameters().getOutputFiles().get().get(path));
+		taskMetrics.inputFiles = inputTotals[0];
+		taskMetrics.inputBytes = inputTotals[1];
+		taskMetrics.outputFiles = outputTotals[0];
+		taskMetrics.outputBytes = outputTotals[1];
+	}
+
+	/**
+	 * Writes the report at the end of the build.
+	 *
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the report.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (metrics.isEmpty()) {
+			return;
+		}
+
+		List<TaskMetrics> sorted = new ArrayList<TaskMetrics>(metrics.values());
+		sorted.sort(Comparator.comparing((taskMetrics) -> taskMetrics.path));
+
+		Path reportFile = getParameters().getReportFile().get().getAsFile().toPath();
+		Path tempFile = reportFile.resolveSibling(String.format(".%s.tmp", reportFile.getFileName()));
+		Files.createDirectories(reportFile.getParent());
+		try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			writer.write("{\n\t\"tasks\": [");
+			for (int i = 0; i < sorted.size(); i++) {
+				TaskMetrics taskMetrics = sorted.get(i);
+				writer.write(i == 0 ? "\n" : ",\n");
+				writer.write(String.format("\t\t{\"path\": \"%s\", \"outcome\": \"%s\", \"durationMillis\": %d, \"inputFiles\": %d, \"inputBytes\": %d, "
+						+ "\"outputFiles\": %d, \"outputBytes\": %d}", JsonChecker.escape(taskMetrics.path), taskMetrics.outcome, taskMetrics.durationMillis,
+						taskMetrics.inputFiles, taskMetrics.inputBytes, taskMetrics.outputFiles, taskMetrics.outputBytes));
+			}
+			writer.write("\n\t]\n}\n");
+		}
+		Files.move(tempFile, reportFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Counts the files in a file collection, and adds up their sizes. Directories are walked, and a missing collection is empty.
+	 *
+	 * @param files
+	 *                The files to measure.
+	 * @return
+	 *         The number of files and their total size, in bytes.
+	 */
+	private static long[] measure(FileCollection files) {
+		long[] totals = new long[2];
+		if (files == null) {
+			return totals;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				try (Stream<Path> walk = Files.walk(file.toPath())) {
+					walk.filter(Files::isRegularFile).forEach((child) -> {
+						totals[0]++;
+						totals[1] += child.toFile().length();
+					});
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			} else if (file.isFile()) {
+				totals[0]++;
+				totals[1] += file.length();
+			}
+		}
+		return totals;
+	}
+
+	/**
+	 * The metrics of a single task.
+	 */
+	private static final class TaskMetrics {
+		/**
+		 * The path of the task.
+		 */
+		private final String path;
+		/**
+		 * The outcome of the task.
+		 */
+		private volatile String outcome = "unknown";
+		/**
+		 * The wall time of the task, in milliseconds.
+		 */
+		private volatile long durationMillis;
+		/**
+		 * The number of input files.
+		 */
+		private volatile long inputFiles;
+		/**
+		 * The total size of the input files, in bytes.
+		 */
+		private volatile long inputBytes;
+		/**
+		 * The number of output files.
+		 */
+		private volatile long outputFiles;
+		/**
+		 * The total size of the output files, in bytes.
+		 */
+		private volatile long outputBytes;
+
+		/**
+		 * Creates a new TaskMetrics.
+		 *
+		 * @param path
+		 *                The path of the task.
+		 */
+		private TaskMetrics(String path) {
+			this.path = path;
+		}
+	}
+
+	/**
+	 * The paths of the tasks recorded by the service, collected while the build is configured. There is one instance for the whole build,
+	 * kept as an extension of the {@link Gradle} object, so every project adds to the same set.
+	 */
+	static final class TrackedTasks {
+		/**
+		 * The name of the extension holding the instance.
+		 */
+		private static final String EXTENSION_NAME = "vendorToolsTrackedTasks";
+
+		/**
+		 * The paths of the tracked tasks.
+		 */
+		private final Set<String> paths = ConcurrentHashMap.newKeySet();
+
+		/**
+		 * Gets the instance for a build, creating it if needed.
+		 *
+		 * @param gradle
+		 *                The build.
+		 * @return
+		 *         The tracked tasks of the build.
+		 */
+		private static synchronized TrackedTasks of(Gradle gradle) {
+			TrackedTasks trackedTasks = gradle.getExtensions().findByType(TrackedTasks.class);
+			if (trackedTasks == null) {
+				trackedTasks = new TrackedTasks();
+				gradle.getExtensions().add(TrackedTasks.class, EXTENSION_NAME, trackedTasks);
+			}
+			return trackedTasks;
+		}
+
+		/**
+		 * Gets the tracked tasks that are in the task graph. This must only be called once the task graph is ready.
+		 *
+		 * @param gradle
+		 *                The build.
+		 * @return
+		 *         The scheduled tracked tasks, by path.
+		 */
+		private Map<String, Task> getScheduledTasks(Gradle gradle) {
+			Map<String, Task> tasks = new TreeMap<String, Task>();
+			for (Task task : gradle.getTaskGraph().getAllTasks()) {
+				if (paths.contains(task.getPath())) {
+					tasks.put(task.getPath(), task);
+				}
+			}
+			return tasks;
+		}
+
+		/**
+		 * Gets files of the tracked tasks that are in the task graph. The files are wrapped in file collections that the service parameters
+		 * can hold, which are only resolved when the service measures them. This must only be called once the task graph is ready.
+		 *
+		 * @param gradle
+		 *                The build.
+		 * @param objects
+		 *                Object factory used to create the file collections.
+		 * @param files
+		 *                Gets the files of a task.
+		 * @return
+		 *         The files of each scheduled tracked task, by path.
+		 */
+		private Map<String, ConfigurableFileCollection> getScheduledFiles(Gradle gradle, ObjectFactory objects, Function<Task, FileCollection> files) {
+			Map<String, ConfigurableFileCollection> scheduledFiles = new TreeMap<String, ConfigurableFileCollection>();
+			getScheduledTasks(gradle).forEach((path, task) -> scheduledFiles.put(path, objects.fileCollection().from(files.apply(task))));
+			return scheduledFiles;
+		}
+	}
+}
@@ -1,20 +1,32 @@
 package net.apollofops.first.vendortools;
 
 import java.io.File;
+import java.util.List;
 
+import javax.inject.Inject;
+
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
 import org.gradle.api.file.Directory;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
+import org.gradle.api.publish.plugins.PublishingPlugin;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.WriteProperties;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+import org.gradle.build.event.BuildEventsListenerRegistry;
 
+import net.apollofops.first.vendortools.combiner.CombineToRepositoryTask;
 import net.apollofops.first.vendortools.cpp.VendorToolsCppPlugin;
 import net.apollofops.first.vendortools.java.VendorToolsJavaPlugin;
-import net.apollofops.first.vendortools.combiner.VendorToolsCombinerPlugin;
 
 /**
- * Main {@link Plugin} of the VendorTools Gradle build tools.
+ * Main {@link Plugin} of the VendorTools Gradle build tools. The library build plugins are applied from the {@code vendordep} extension,
+ * with {@link VendordepExtension#java()}, {@link VendordepExtension#cpp()} and {@link VendordepExtension#combiner()}, or by applying them
+ * directly.
  */
 public abstract class VendorToolsPlugin implements Plugin<Project> {
 	/**
@@ -29,6 +41,35 @@ public abstract class VendorToolsPlugin implements Plugin<Project> {
 	 * The key used for the releases repo name in the metadata file.
 	 */
 	public static final String METADATA_RELEASES_REPO_NAME_KEY = "releasesRepoName";
+	/**
+	 * The environment variable used to override the project version.
+	 */
+	public static final String RELEASE_VERSION_ENV = "releaseVersion";
+	/**
+	 * The environment variable used to set the default releases repo name.
+	 */
+	public static final String RELEASES_REPO_NAME_ENV = "releasesRepoName";
+	/**
+	 * The Gradle property used to enable output aggregation for every project of a build.
+	 */
+	public static final String AGGREGATE_OUTPUTS_PROPERTY = "vendortools.aggregateOutputs";
+	/**
+	 * The name of the task that places the outputs of a library project in the shared products folder.
+	 */
+	public static final String AGGREGATE_OUTPUTS_TASK_NAME = "aggregateOutputs";
+	/**
+	 * The Gradle property used to enable dev mode.
+	 */
+	public static final String DEV_MODE_PROPERTY = "vendortools.dev";
+
+	/**
+	 * Gets the registry used to subscribe to build events.
+	 *
+	 * @return
+	 *         The build events listener registry.
+	 */
+	@Inject
+	protected abstract BuildEventsListenerRegistry getEventsListenerRegistry();
 
 	/**
 	 * Applies the plugin to the given {@link Project}.
@@ -44,18 +85,18 @@ public abstract class VendorToolsPlugin implements Plugin<Project> {
 		// Plugin dependencies
 		project.getPluginManager().apply(MavenPublishPlugin.class);
 
-		// Task dependencies
-		Task buildTask = project.getTasks().getByName("build");
+		// Task metrics
+		TaskMetricsService.register(project, getEventsListenerRegistry());
 
 		// Project info
 		Directory buildDir = project.getLayout().getBuildDirectory().get();
 
 		// Vendordep configuration
-		String releaseVersion = System.getenv("releaseVersion");
+		String releaseVersion = project.getProviders().environmentVariable(RELEASE_VERSION_ENV).getOrNull();
 		if (releaseVersion != null) {
 			project.setVersion(releaseVersion);
 		} else {
-			System.err.println("releaseVersion environment variable not found. Using the version from the project settings.");
+			project.getLogger().info("releaseVersion environment variable not found. Using the version from the project settings.");
 		}
 
 		File outputsFolder = project.file(String.format("%s/outputs", buildDir));
@@ -63,41 +104,141 @@ public abstract class VendorToolsPlugin implements Plugin<Project> {
 		File metadataFile = project.file(String.format("%s/metadata.properties", outputsFolder));
 
 		// Metadata output
-		WriteProperties writePropertiesTask = project.getTasks().register("outputMetadata", WriteProperties.class, task -> {
-			task.property(METADATA_VERSION_KEY, project.getVersion());
+		TaskProvider<WriteProperties> writePropertiesTask = project.getTasks().register("outputMetadata", WriteProperties.class, task -> {
+			task.property(METADATA_VERSION_KEY, vendordepExtension.getPublishVersion());
 			task.property(METADATA_RELEASES_REPO_NAME_KEY, vendordepExtension.getReleasesRepoName());
 			task.getDestinationFile().set(metadataFile);
-		}).get();
-		buildTask.dependsOn(writePropertiesTask);
+		});
 
 		// All outputs task
-		CopyAllOutputsTask copyAllOutputsTask = project.getTasks().register("copyAllOutputs", CopyAllOutputsTask.class, task -> {
-			task.getInputFiles().from(metadataFile);
+		TaskProvider<CopyAllOutputsTask> copyAllOutputsTask = project.getTasks().register("copyAllOutputs", CopyAllOutputsTask.class, task -> {
+			task.addArchiveFile(writePropertiesTask.flatMap(WriteProperties::getDestinationFile));
 			task.getOutputsFolder().set(allOutputsFolder);
-		}).get();
-		copyAllOutputsTask.dependsOn(writePropertiesTask);
-		buildTask.dependsOn(copyAllOutputsTask);
+		});
+
+		// Manifest of the outputs, for downstream jobs to find the files that changed
+		Provider<OutputHashingService> hashingService = OutputHashingService.register(project);
+		TaskProvider<OutputVersionsTask> outputManifestTask = project.getTasks().register("outputManifest", OutputVersionsTask.class, task -> {
+			task.getHashingService().set(hashingService);
+			task.usesService(hashingService);
+			task.getVersion().set(vendordepExtension.getPublishVersion());
+			task.getInputFiles().from(project.getProviders().provider(() -> copyAllOutputsTask.get().getInputFiles()));
+			task.getManifestFile().set(project.getLayout().getBuildDirectory().file("manifest.json"));
+		});
+
+		// Shared thread pool for compressing the entries of every archive in the build
+		Provider<ArchiveCompressionService> compressionService = ArchiveCompressionService.register(project);
+		project.getTasks().withType(ParallelZipTask.class).configureEach(task -> {
+			task.getCompressionService().set(compressionService);
+			task.usesService(compressionService);
+		});
+
+		// Shared products folder, with a folder for each project, for combining in the same build. Only projects that build a library take
+		// part, so a project that only combines doesn't add an empty product.
+		Provider<OutputAggregationService> aggregationService = OutputAggregationService.register(project);
+		String productName = project == project.getRootProject() ? project.getName() : project.getPath().substring(1).replace(':', '-');
+		Action<Plugin<Project>> aggregateOutputs = (plugin) -> {
+			if (project.getTasks().getNames().contains(AGGREGATE_OUTPUTS_TASK_NAME)) {
+				return;
+			}
+			TaskProvider<AggregateOutputsTask> aggregateOutputsTask = project.getTasks().register(AGGREGATE_OUTPUTS_TASK_NAME, AggregateOutputsTask.class, task -> {
+				task.getInputFiles().from(project.getProviders().provider(() -> copyAllOutputsTask.get().getInputFiles()));
+				task.getProductFolder().set(project.getRootProject().getLayout().getBuildDirectory().dir(String.format("products/%s", productName)));
+				task.getProjectPath().set(project.getPath());
+				task.getAggregationService().set(aggregationService);
+				task.usesService(aggregationService);
+			});
+			OutputAggregationService.addAggregateTask(project, aggregateOutputsTask);
+			project.getTasks().named("build", task -> task.dependsOn(vendordepExtension.getAggregateOutputs()
+					.map((aggregate) -> aggregate ? List.of(aggregateOutputsTask) : List.of())));
+			TaskMetricsService.track(project, aggregateOutputsTask);
+		};
+		project.getPlugins().withType(VendorToolsJavaPlugin.class, aggregateOutputs);
+		project.getPlugins().withType(VendorToolsCppPlugin.class, aggregateOutputs);
+
+		// Republishing into the local releases repo, for use with --continuous. The outputs are staged as a single product and combined in
+		// idempotent mode, so only the files whose content changed are replaced, along with their checksums and the maven-metadata.xml.
+		// The staging folder belongs to this project alone, so it is a plain copy rather than an AggregateOutputsTask.
+		TaskProvider<CopyAllOutputsTask> stageRepublishTask = project.getTasks().register("stageRepublish", CopyAllOutputsTask.class, task -> {
+			task.getInputFiles().from(project.getProviders().provider(() -> copyAllOutputsTask.get().getInputFiles()));
+			task.getOutputsFolder().set(project.getLayout().getBuildDirectory().dir(String.format("republish/%s", productName)));
+		});
+
+		TaskProvider<CombineToRepositoryTask> republishTask = project.getTasks().register("republish", CombineToRepositoryTask.class, task -> {
+			task.dependsOn(stageRepublishTask);
+			task.getProductsFolder().set(project.getLayout().getBuildDirectory().dir("republish"));
+			task.getIndexFile().set(project.getLayout().getBuildDirectory().file("vendortools/republish-index.bin"));
+			task.getDefaultVersion().set(vendordepExtension.getPublishVersion());
+			task.getDefaultReleasesRepoName().set(vendordepExtension.getReleasesRepoName());
+			task.getRepositoriesFolder().set(vendordepExtension.getMavenRepoFolder());
+			task.getIdempotent().set(true);
+		});
+
+		// Build task dependencies
+		project.getTasks().named("build", task -> {
+			task.dependsOn(writePropertiesTask);
+			task.dependsOn(copyAllOutputsTask);
+			task.dependsOn(outputManifestTask);
+		});
 
 		// Vendordep JSON templating
-		project.getTasks().register("vendordepJson", VendordepJsonTask.class, task -> {
+		TaskProvider<VendordepJsonTask> vendordepJsonTask = project.getTasks().register("vendordepJson", VendordepJsonTask.class, task -> {
 			task.getVendordepFile().set(vendordepExtension.getVendordepJsonFile());
 			task.getOutputsFolder().set(outputsFolder);
-			task.getValueMap().put("version", (String) project.getVersion());
+			task.getValueMap().put("version", vendordepExtension.getPublishVersion());
 			task.getValueMap().put("groupId", vendordepExtension.getArtifactGroupId());
 			task.getValueMap().put("artifactId", vendordepExtension.getBaseArtifactId());
 		});
 
-		project.afterEvaluate((ae) -> {
-			// Library build plugins
-			if (vendordepExtension.getEnableJava().get()) {
-				project.getPluginManager().apply(VendorToolsJavaPlugin.class);
-			}
-			if (vendordepExtension.getEnableCpp().get()) {
-				project.getPluginManager().apply(VendorToolsCppPlugin.class);
-			}
-			if (vendordepExtension.getEnableCombiner().get()) {
-				project.getPluginManager().apply(VendorToolsCombinerPlugin.class);
-			}
+		// Offline installer, containing the vendordep JSON and the releases repo files for this version
+		TaskProvider<ParallelZipTask> offlineInstallerTask = project.getTasks().register("offlineInstaller", ParallelZipTask.class, task -> {
+			task.setDescription("Assembles a Zip archive containing the vendordep JSON and the published repo files for the current version.");
+			task.setGroup(BUILD_TASK_GROUP);
+
+			Provider<String> version = vendordepExtension.getPublishVersion();
+			task.getArchiveFile().set(project.getLayout().getBuildDirectory().file(vendordepExtension.getBaseArtifactId().orElse(project.getName())
+					.zip(version, (artifactId, v) -> String.format("distributions/%s-%s-offline.zip", artifactId, v))));
+			task.compressionFrom(vendordepExtension);
+			task.getReproducible().set(vendordepExtension.getReproducibleArchives());
+			task.from(vendordepJsonTask);
+			task.into(vendordepExtension.getReleasesRepoName().map((repoName) -> String.format("repos/%s", repoName)),
+					vendordepExtension.getReleasesRepoFolder().zip(version, (folder, v) -> folder.getAsFileTree()
+							.matching((tree) -> tree.include(String.format("**/%s/**", v)))));
+
+			// Include the repo files written by the same build. Only the combiner tasks are realized to resolve this.
+			task.mustRunAfter(project.getTasks().withType(CombineToRepositoryTask.class));
+			task.mustRunAfter(project.getTasks().named(PublishingPlugin.PUBLISH_LIFECYCLE_TASK_NAME));
 		});
+
+		// Task metrics
+		TaskMetricsService.track(project, writePropertiesTask, copyAllOutputsTask, outputManifestTask, stageRepublishTask, republishTask, vendordepJsonTask, offlineInstallerTask);
+	}
+
+	/**
+	 * Applies the common configuration to an archive task created by VendorTools. Archive tasks are not cached by Gradle by default,
+	 * but the inputs of the VendorTools archives are tracked by relative path, so their outputs can be reused across checkouts. If
+	 * {@link VendordepExtension#getReproducibleArchives()} is enabled, the entries are written in a fixed order, with a fixed timestamp
+	 * and fixed permissions, and in {@link VendordepExtension#getDevMode() dev mode} the entries are stored without compression. Both
+	 * settings are read when the task is configured, which is after the build script has run for tasks configured through their
+	 * {@link TaskProvider}, so Gradle fingerprints the archive settings the task runs with.
+	 *
+	 * @param task
+	 *                The archive task to configure.
+	 * @param vendordepExtension
+	 *                The extension to read the archive settings from.
+	 */
+	public static void configureArchiveTask(AbstractArchiveTask task, VendordepExtension vendordepExtension) {
+		task.getOutputs().cacheIf("VendorTools archives are relocatable", (t) -> true);
+
+		if (vendordepExtension.getDevMode().get() && task instanceof Zip) {
+			((Zip) task).setEntryCompression(ZipEntryCompression.STORED);
+		}
+
+		if (vendordepExtension.getReproducibleArchives().get()) {
+			task.setPreserveFileTimestamps(false);
+			task.setReproducibleFileOrder(true);
+			task.filePermissions((permissions) -> permissions.unix(ParallelZipWriter.REPRODUCIBLE_FILE_PERMISSIONS));
+			task.dirPermissions((permissions) -> permissions.unix(ParallelZipWriter.REPRODUCIBLE_DIRECTORY_PERMISSIONS));
+		}
 	}
 }
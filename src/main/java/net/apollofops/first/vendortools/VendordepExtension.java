@@ -1,21 +1,43 @@
 package net.apollofops.first.vendortools;
 
+import java.io.File;
+import java.net.URI;
+import java.util.zip.Deflater;
+
 import javax.inject.Inject;
 
 import org.gradle.api.Project;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+import org.gradle.api.plugins.PluginManager;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 
+import net.apollofops.first.vendortools.combiner.VendorToolsCombinerPlugin;
+import net.apollofops.first.vendortools.cpp.VendorToolsCppPlugin;
+import net.apollofops.first.vendortools.java.VendorToolsJavaPlugin;
+
 /**
  * An extension used to configure Vendordep builds.
  */
 public class VendordepExtension {
+	/**
+	 * The suffix added to the version in {@link #devMode}.
+	 */
+	public static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+
 	/**
 	 * The Vendordep JSON file template.
 	 */
 	private final RegularFileProperty vendordepJsonFile;
+	/**
+	 * The license file added to the C++ archives.
+	 */
+	private final RegularFileProperty licenseFile;
 	/**
 	 * The base artifact ID of the Vendordep.
 	 */
@@ -33,17 +55,60 @@ public class VendordepExtension {
 	 */
 	private final Property<String> mavenRepoUrl;
 	/**
-	 * Enables the {@link net.apollofops.first.vendortools.java.VendorToolsJavaPlugin}.
+	 * Whether the {@link VendorToolsJavaPlugin} is applied.
 	 */
 	private final Property<Boolean> enableJava;
 	/**
-	 * Enables the {@link net.apollofops.first.vendortools.cpp.VendorToolsCppPlugin}.
+	 * Whether the {@link VendorToolsCppPlugin} is applied.
 	 */
 	private final Property<Boolean> enableCpp;
 	/**
-	 * Enables the {@link net.apollofops.first.vendortools.combiner.VendorToolsCombinerPlugin}.
+	 * Whether the {@link VendorToolsCombinerPlugin} is applied.
 	 */
 	private final Property<Boolean> enableCombiner;
+	/**
+	 * The compression level used for archive entries without a level in {@link #compressionLevels}, from 0 (stored) to 9, or -1 for the
+	 * default level.
+	 */
+	private final Property<Integer> compressionLevel;
+	/**
+	 * The compression levels used for archive entries, by file extension. Files that are already compressed are stored by default.
+	 */
+	private final MapProperty<String, Integer> compressionLevels;
+	/**
+	 * Makes the archives created by VendorTools reproducible, by normalizing the order, timestamps and permissions of their entries.
+	 */
+	private final Property<Boolean> reproducibleArchives;
+	/**
+	 * The folder containing pre-built native binaries, in a {@code <platform>/<shared|static>} folder for each platform and link type.
+	 */
+	private final DirectoryProperty nativeBinariesFolder;
+	/**
+	 * Makes the combiner skip files that are already in the repository with the same content, and fail if a file of a released version
+	 * would change.
+	 */
+	private final Property<Boolean> idempotentPublish;
+	/**
+	 * Places the outputs of this project in the products folder of the root project, so they can be combined in the same build.
+	 */
+	private final Property<Boolean> aggregateOutputs;
+	/**
+	 * Enables the dev mode profile for fast iteration. The Javadoc and sources archives are skipped, archives are stored without
+	 * compression by default, and the artifacts are published under a snapshot version.
+	 */
+	private final Property<Boolean> devMode;
+	/**
+	 * The version the artifacts are published under.
+	 */
+	private final Provider<String> publishVersion;
+	/**
+	 * The project directory, used to resolve the releases repo folder.
+	 */
+	private final Directory projectDirectory;
+	/**
+	 * The plugin manager of the project, used to apply the library build plugins.
+	 */
+	private final PluginManager pluginManager;
 
 	/**
 	 * Creates a new VendordepExtension.
@@ -54,8 +119,11 @@ public class VendordepExtension {
 	@Inject
 	public VendordepExtension(Project project) {
 		ObjectFactory objects = project.getObjects();
+		projectDirectory = project.getLayout().getProjectDirectory();
+		pluginManager = project.getPluginManager();
 
 		vendordepJsonFile = objects.fileProperty();
+		licenseFile = objects.fileProperty();
 		baseArtifactId = objects.property(String.class);
 		artifactGroupId = objects.property(String.class);
 		releasesRepoName = objects.property(String.class);
@@ -63,13 +131,39 @@ public class VendordepExtension {
 		enableCpp = objects.property(Boolean.class);
 		mavenRepoUrl = objects.property(String.class);
 		enableCombiner = objects.property(Boolean.class);
+		compressionLevel = objects.property(Integer.class);
+		compressionLevels = objects.mapProperty(String.class, Integer.class);
+		reproducibleArchives = objects.property(Boolean.class);
+		nativeBinariesFolder = objects.directoryProperty();
+		idempotentPublish = objects.property(Boolean.class);
+		aggregateOutputs = objects.property(Boolean.class);
+		devMode = objects.property(Boolean.class);
+		publishVersion = devMode.zip(project.getProviders().provider(() -> project.getVersion().toString()),
+				(dev, version) -> dev && !version.endsWith(SNAPSHOT_SUFFIX) ? version + SNAPSHOT_SUFFIX : version);
 
 		// Defaults
 		enableJava.set(false);
 		enableCpp.set(false);
 		enableCombiner.set(false);
+		project.getPlugins().withType(VendorToolsJavaPlugin.class, (plugin) -> enableJava.set(true));
+		project.getPlugins().withType(VendorToolsCppPlugin.class, (plugin) -> enableCpp.set(true));
+		project.getPlugins().withType(VendorToolsCombinerPlugin.class, (plugin) -> enableCombiner.set(true));
+		licenseFile.set(project.getLayout().file(project.getProviders().provider(() -> {
+			ExtraPropertiesExtension extraProperties = project.getExtensions().getExtraProperties();
+			return extraProperties.has("licenseFile") ? project.file(extraProperties.get("licenseFile")) : null;
+		})));
 		mavenRepoUrl.set(String.format("%s/repos", project.getRootDir()));
-		releasesRepoName.set(System.getenv("releasesRepoName"));
+		releasesRepoName.set(project.getProviders().environmentVariable(VendorToolsPlugin.RELEASES_REPO_NAME_ENV));
+		reproducibleArchives.set(false);
+		nativeBinariesFolder.set(project.getLayout().getBuildDirectory().dir("binaries"));
+		idempotentPublish.set(false);
+		aggregateOutputs.set(project.getProviders().gradleProperty(VendorToolsPlugin.AGGREGATE_OUTPUTS_PROPERTY).map(Boolean::parseBoolean).orElse(false));
+		devMode.set(project.getProviders().gradleProperty(VendorToolsPlugin.DEV_MODE_PROPERTY).map((value) -> value.isEmpty() || Boolean.parseBoolean(value))
+				.orElse(false));
+		compressionLevel.set(devMode.map((dev) -> dev ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION));
+		for (String extension : new String[] { "zip", "jar", "gz", "tgz", "xz", "bz2", "7z", "png", "jpg", "jpeg" }) {
+			compressionLevels.put(extension, Deflater.NO_COMPRESSION);
+		}
 	}
 
 	/**
@@ -82,6 +176,17 @@ public class VendordepExtension {
 		return vendordepJsonFile;
 	}
 
+	/**
+	 * Gets the {@link #licenseFile}. Defaults to the {@code licenseFile} extra property of the project, which is read when the archives
+	 * are built.
+	 *
+	 * @return
+	 *         {@link #licenseFile} of this extension.
+	 */
+	public RegularFileProperty getLicenseFile() {
+		return licenseFile;
+	}
+
 	/**
 	 * Gets the {@link #baseArtifactId}.
 	 *
@@ -123,35 +228,148 @@ public class VendordepExtension {
 	}
 
 	/**
-	 * Gets the {@link #enableJava}.
+	 * Gets the {@link #enableJava}. This is read-only, and becomes {@code true} when the plugin is applied. Use {@link #java()} or
+	 * {@link #setEnableJava(boolean)} to apply the plugin.
 	 *
 	 * @return
 	 *         {@link #enableJava} of this extension.
 	 */
-	public Property<Boolean> getEnableJava() {
+	public Provider<Boolean> getEnableJava() {
 		return enableJava;
 	}
 
 	/**
-	 * Gets the {@link #enableCpp}.
+	 * Applies the {@link VendorToolsJavaPlugin} if {@code enable} is {@code true}. Kept so {@code enableJava = true} still works in
+	 * build scripts.
+	 *
+	 * @param enable
+	 *                Whether to apply the plugin.
+	 */
+	public void setEnableJava(boolean enable) {
+		if (enable) {
+			java();
+		}
+	}
+
+	/**
+	 * Enables Java builds by applying the {@link VendorToolsJavaPlugin}.
+	 */
+	public void java() {
+		pluginManager.apply(VendorToolsJavaPlugin.class);
+	}
+
+	/**
+	 * Gets the {@link #enableCpp}. This is read-only, and becomes {@code true} when the plugin is applied. Use {@link #cpp()} or
+	 * {@link #setEnableCpp(boolean)} to apply the plugin.
 	 *
 	 * @return
 	 *         {@link #enableCpp} of this extension.
 	 */
-	public Property<Boolean> getEnableCpp() {
+	public Provider<Boolean> getEnableCpp() {
 		return enableCpp;
 	}
 
 	/**
-	 * Gets the {@link #enableCombiner}.
+	 * Applies the {@link VendorToolsCppPlugin} if {@code enable} is {@code true}. Kept so {@code enableCpp = true} still works in build
+	 * scripts.
+	 *
+	 * @param enable
+	 *                Whether to apply the plugin.
+	 */
+	public void setEnableCpp(boolean enable) {
+		if (enable) {
+			cpp();
+		}
+	}
+
+	/**
+	 * Enables C++ builds by applying the {@link VendorToolsCppPlugin}.
+	 */
+	public void cpp() {
+		pluginManager.apply(VendorToolsCppPlugin.class);
+	}
+
+	/**
+	 * Gets the {@link #enableCombiner}. This is read-only, and becomes {@code true} when the plugin is applied. Use {@link #combiner()} or
+	 * {@link #setEnableCombiner(boolean)} to apply the plugin.
 	 *
 	 * @return
 	 *         {@link #enableCombiner} of this extension.
 	 */
-	public Property<Boolean> getEnableCombiner() {
+	public Provider<Boolean> getEnableCombiner() {
 		return enableCombiner;
 	}
 
+	/**
+	 * Applies the {@link VendorToolsCombinerPlugin} if {@code enable} is {@code true}. Kept so {@code enableCombiner = true} still works
+	 * in build scripts.
+	 *
+	 * @param enable
+	 *                Whether to apply the plugin.
+	 */
+	public void setEnableCombiner(boolean enable) {
+		if (enable) {
+			combiner();
+		}
+	}
+
+	/**
+	 * Enables the combiner by applying the {@link VendorToolsCombinerPlugin}.
+	 */
+	public void combiner() {
+		pluginManager.apply(VendorToolsCombinerPlugin.class);
+	}
+
+	/**
+	 * Gets the {@link #compressionLevel}.
+	 *
+	 * @return
+	 *         {@link #compressionLevel} of this extension.
+	 */
+	public Property<Integer> getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Gets the {@link #compressionLevels}.
+	 *
+	 * @return
+	 *         {@link #compressionLevels} of this extension.
+	 */
+	public MapProperty<String, Integer> getCompressionLevels() {
+		return compressionLevels;
+	}
+
+	/**
+	 * Gets the {@link #reproducibleArchives}.
+	 *
+	 * @return
+	 *         {@link #reproducibleArchives} of this extension.
+	 */
+	public Property<Boolean> getReproducibleArchives() {
+		return reproducibleArchives;
+	}
+
+	/**
+	 * Gets the {@link #nativeBinariesFolder}.
+	 *
+	 * @return
+	 *         {@link #nativeBinariesFolder} of this extension.
+	 */
+	public DirectoryProperty getNativeBinariesFolder() {
+		return nativeBinariesFolder;
+	}
+
+	/**
+	 * Gets the {@link #idempotentPublish}.
+	 *
+	 * @return
+	 *         {@link #idempotentPublish} of this extension.
+	 */
+	public Property<Boolean> getIdempotentPublish() {
+		return idempotentPublish;
+	}
+
 	/**
 	 * Gets the group ID used by the base name. This is the regular group ID, but with periods replaced with underscores.
 	 *
@@ -174,6 +392,68 @@ public class VendordepExtension {
 		return getBaseNameGroupId().zip(baseArtifactId, (groupId, artifactId) -> String.format("_GROUP_%s_ID_%s-%s_CLS", groupId, artifactId, artifactClassifier));
 	}
 
+	/**
+	 * Gets the {@link #aggregateOutputs}. Defaults to the {@code vendortools.aggregateOutputs} Gradle property, so it can be enabled for
+	 * every project of a build from the root {@code gradle.properties}.
+	 *
+	 * @return
+	 *         {@link #aggregateOutputs} of this extension.
+	 */
+	public Property<Boolean> getAggregateOutputs() {
+		return aggregateOutputs;
+	}
+
+	/**
+	 * Gets the {@link #devMode}. Defaults to the {@code vendortools.dev} Gradle property, so it can be enabled with
+	 * {@code -Pvendortools.dev} without changing the build script.
+	 *
+	 * @return
+	 *         {@link #devMode} of this extension.
+	 */
+	public Property<Boolean> getDevMode() {
+		return devMode;
+	}
+
+	/**
+	 * Enables the {@link #devMode} profile.
+	 */
+	public void devMode() {
+		devMode.set(true);
+	}
+
+	/**
+	 * Gets the version the artifacts are published under. This is the project version, with {@link #SNAPSHOT_SUFFIX} added in
+	 * {@link #devMode}.
+	 *
+	 * @return
+	 *         A string provider that provides the published version.
+	 */
+	public Provider<String> getPublishVersion() {
+		return publishVersion;
+	}
+
+	/**
+	 * Gets the local folder of the maven repo, based on the {@link #mavenRepoUrl}. {@code file:} URLs are converted to paths, and relative
+	 * paths are resolved against the project directory.
+	 *
+	 * @return
+	 *         A directory provider that provides the maven repo folder.
+	 */
+	public Provider<Directory> getMavenRepoFolder() {
+		return projectDirectory.dir(mavenRepoUrl.map((url) -> url.startsWith("file:") ? new File(URI.create(url)).getPath() : url));
+	}
+
+	/**
+	 * Gets the local folder of the releases repo, which is the {@link #releasesRepoName} folder inside the
+	 * {@link #getMavenRepoFolder() maven repo folder}.
+	 *
+	 * @return
+	 *         A directory provider that provides the releases repo folder.
+	 */
+	public Provider<Directory> getReleasesRepoFolder() {
+		return getMavenRepoFolder().zip(releasesRepoName, Directory::dir);
+	}
+
 	/**
 	 * Gets the repo URL for the plugin based on the {@link #mavenRepoUrl} and {@link #releasesRepoName}.
 	 *
@@ -1,23 +1,37 @@
 package net.apollofops.first.vendortools;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 import javax.inject.Inject;
 
 import org.gradle.api.DefaultTask;
 
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
-import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Provider;
 
 /**
- * Replaces template variables in a Vendordep JSON file and writes it to the outputs folder.
+ * Replaces template variables in a Vendordep JSON file and writes it to the outputs folder. The file is expanded by a
+ * {@link JsonTemplateExpander}, which also checks that the result is well-formed JSON.
  */
+@CacheableTask
 public abstract class VendordepJsonTask extends DefaultTask {
 	/**
 	 * The Vendordep JSON file to read.
@@ -52,21 +66,34 @@ public abstract class VendordepJsonTask extends DefaultTask {
 	 *         {@link #vendordepFile} for this task.
 	 */
 	@InputFile
+	@PathSensitive(PathSensitivity.NAME_ONLY)
 	public RegularFileProperty getVendordepFile() {
 		return vendordepFile;
 	}
 
 	/**
-	 * Gets the {@link #outputsFolder} for this task.
+	 * Gets the {@link #outputsFolder} for this task. The folder is shared with other tasks, so only the
+	 * {@link #getOutputFile() output file} is tracked as an output.
 	 *
 	 * @return
 	 *         {@link #outputsFolder} for this task.
 	 */
-	@OutputDirectory
+	@Internal
 	public DirectoryProperty getOutputsFolder() {
 		return outputsFolder;
 	}
 
+	/**
+	 * Gets the file this task writes, which is the {@link #vendordepFile} name inside the {@link #outputsFolder}.
+	 *
+	 * @return
+	 *         A provider that provides the output file.
+	 */
+	@OutputFile
+	public Provider<RegularFile> getOutputFile() {
+		return outputsFolder.zip(vendordepFile, (folder, file) -> folder.file(file.getAsFile().getName()));
+	}
+
 	/**
 	 * Gets the {@link #valueMap} for this task.
 	 *
@@ -101,21 +128,29 @@ public abstract class VendordepJsonTask extends DefaultTask {
 	}
 
 	/**
-	 * Copies the {@link #vendordepFile JSON file} to the {@link #outputsFolder},
-	 * filling in template values from the {@link #valueMap} in the process.
+	 * Expands the {@link #vendordepFile JSON file} into the {@link #outputsFolder}, filling in template values from the {@link #valueMap}
+	 * in the process. The file is written to a temporary file and renamed into place, so a failed expansion doesn't leave a partial file.
 	 *
 	 * @throws IOException
 	 *                 If an IOException occurs while writing the file.
-	 * @see org.gradle.api.Project#copy(org.gradle.api.Action)
+	 * @see JsonTemplateExpander
 	 */
 	@TaskAction
 	public void execute() throws IOException {
-		getProject().copy(t -> {
-			t.from(vendordepFile.getAsFile().get());
-			t.into(outputsFolder);
+		Path source = vendordepFile.getAsFile().get().toPath();
+		Path target = getOutputFile().get().getAsFile().toPath();
+		Path tempFile = target.resolveSibling(String.format(".%s.tmp", target.getFileName()));
+		Files.createDirectories(target.getParent());
 
-			// Apply template variables from the vendordep file.
-			t.expand(valueMap.get());
-		});
+		JsonTemplateExpander expander = new JsonTemplateExpander(valueMap.get());
+		try {
+			try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+					Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				expander.expand(reader, writer, source.getFileName().toString());
+			}
+			Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
 	}
 }
@@ -0,0 +1,139 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes the checksums that Maven repositories store next to each file.
+ */
+public final class Checksums {
+	/**
+	 * The checksum file extensions, mapped to the digest algorithm used for each.
+	 */
+	public static final Map<String, String> ALGORITHMS = Map.of(
+			"md5", "MD5",
+			"sha1", "SHA-1",
+			"sha256", "SHA-256",
+			"sha512", "SHA-512");
+
+	/**
+	 * The size of the buffer used to read files.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * This is a utility class.
+	 */
+	private Checksums() {
+	}
+
+	/**
+	 * Computes every checksum in {@link #ALGORITHMS} for a file in one read.
+	 *
+	 * @param file
+	 *                The file to hash.
+	 * @return
+	 *         The lowercase hex checksums, keyed by checksum file extension.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading the file.
+	 */
+	public static Map<String, String> compute(File file) throws IOException {
+		try (InputStream input = Files.newInputStream(file.toPath())) {
+			return compute(input);
+		}
+	}
+
+	/**
+	 * Computes every checksum in {@link #ALGORITHMS} for the contents of a stream in one read.
+	 *
+	 * @param input
+	 *                The stream to hash. It is read to the end, but not closed.
+	 * @return
+	 *         The lowercase hex checksums, keyed by checksum file extension.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading the stream.
+	 */
+	public static Map<String, String> compute(InputStream input) throws IOException {
+		return copy(input, OutputStream.nullOutputStream());
+	}
+
+	/**
+	 * Copies a stream while computing every checksum in {@link #ALGORITHMS} for its contents, so the contents are only read once.
+	 *
+	 * @param input
+	 *                The stream to copy and hash. It is read to the end, but not closed.
+	 * @param output
+	 *                The stream to copy to. It is not closed.
+	 * @return
+	 *         The lowercase hex checksums, keyed by checksum file extension.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading or writing.
+	 */
+	public static Map<String, String> copy(InputStream input, OutputStream output) throws IOException {
+		Map<String, MessageDigest> digests = new LinkedHashMap<String, MessageDigest>();
+		for (Map.Entry<String, String> algorithm : ALGORITHMS.entrySet()) {
+			try {
+				digests.put(algorithm.getKey(), MessageDigest.getInstance(algorithm.getValue()));
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			for (MessageDigest digest : digests.values()) {
+				digest.update(buffer, 0, read);
+			}
+			output.write(buffer, 0, read);
+		}
+
+		Map<String, String> checksums = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, MessageDigest> digest : digests.entrySet()) {
+			checksums.put(digest.getKey(), toHex(digest.getValue().digest()));
+		}
+		return checksums;
+	}
+
+	/**
+	 * Writes a checksum file for each checksum, named after the hashed file with the checksum extension appended.
+	 *
+	 * @param checksums
+	 *                The checksums, keyed by checksum file extension.
+	 * @param baseFile
+	 *                The file to name the checksum files after.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the files.
+	 */
+	public static void write(Map<String, String> checksums, File baseFile) throws IOException {
+		for (Map.Entry<String, String> checksum : checksums.entrySet()) {
+			File checksumFile = new File(baseFile.getPath() + "." + checksum.getKey());
+			Files.write(checksumFile.toPath(), checksum.getValue().getBytes(StandardCharsets.US_ASCII));
+		}
+	}
+
+	/**
+	 * Converts bytes to a zero-padded lowercase hex string.
+	 *
+	 * @param bytes
+	 *                The bytes to convert.
+	 * @return
+	 *         The hex string.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+			builder.append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+}
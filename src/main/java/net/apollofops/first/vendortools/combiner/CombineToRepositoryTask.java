@@ -0,0 +1,982 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+import org.gradle.process.ExecOperations;
+
+import net.apollofops.first.vendortools.VendorToolsPlugin;
+
+/**
+ * Writes everything in the combiner's products folder straight into a local Maven repository folder, without going through maven-publish.
+ * The artifacts, POMs, checksum files and merged {@code maven-metadata.xml} files are written in parallel on a bounded thread pool, and
+ * every file is written to a temporary file and atomically renamed into place. The files are the same as the ones maven-publish writes,
+ * apart from the {@code lastUpdated} timestamp in {@code maven-metadata.xml}. Snapshot versions are published the same way as
+ * maven-publish does too, under unique timestamped file names listed in the {@code maven-metadata.xml} of the version folder.
+ * <p>
+ * Each artifact and POM gets an {@code .asc} signature next to it. Signatures from the {@link GenerateChecksumsTask} are copied, and
+ * anything without one is signed with GPG when a {@link #gpgKeyName} is set.
+ * <p>
+ * Product bundle zips directly inside the products folder are combined too. Their entries are streamed from the zip into the repository
+ * through a zip file system, and hashed while they are copied, so the bundles never have to be extracted.
+ * <p>
+ * The task has no declared outputs and always runs. The repositories folder also holds the other versions of every artifact, written by
+ * earlier builds, maven-publish and {@code republish}, so it can't be owned by this task, and each {@code maven-metadata.xml} has to be
+ * merged with whatever is in the repository when the task runs. Use {@link #idempotent} mode to make a rerun with unchanged products only
+ * compare checksums.
+ */
+@UntrackedTask(because = "It merges into Maven repositories that are shared with other tasks and builds")
+public abstract class CombineToRepositoryTask extends DefaultTask {
+	/**
+	 * The pattern used to read the versions from an existing {@code maven-metadata.xml} file.
+	 */
+	private static final Pattern METADATA_VERSION_PATTERN = Pattern.compile("<version>([^<]*)</version>");
+	/**
+	 * The pattern used to read the latest version from an existing {@code maven-metadata.xml} file.
+	 */
+	private static final Pattern METADATA_LATEST_PATTERN = Pattern.compile("<latest>([^<]*)</latest>");
+	/**
+	 * The pattern used to read the build number from an existing snapshot {@code maven-metadata.xml} file.
+	 */
+	private static final Pattern SNAPSHOT_BUILD_NUMBER_PATTERN = Pattern.compile("<buildNumber>(\\d+)</buildNumber>");
+	/**
+	 * The pattern used to read the files from an existing snapshot {@code maven-metadata.xml} file.
+	 */
+	private static final Pattern SNAPSHOT_VERSION_PATTERN = Pattern.compile("<snapshotVersion>\\s*(?:<classifier>([^<]*)</classifier>\\s*)?"
+			+ "<extension>([^<]*)</extension>\\s*<value>([^<]*)</value>\\s*<updated>([^<]*)</updated>\\s*</snapshotVersion>");
+	/**
+	 * The checksum sidecars compared with in idempotent mode, strongest first.
+	 */
+	private static final String[] IDEMPOTENT_CHECKSUMS = { "sha256", "sha1" };
+
+	/**
+	 * The folder containing the product folders.
+	 */
+	private final DirectoryProperty productsFolder;
+	/**
+	 * The {@link ProductIndex} file used to skip walking unchanged product folders.
+	 */
+	private final RegularFileProperty indexFile;
+	/**
+	 * The version to use for products without one in their metadata.
+	 */
+	private final Property<String> defaultVersion;
+	/**
+	 * The repository name to use for products without one in their metadata.
+	 */
+	private final Property<String> defaultReleasesRepoName;
+	/**
+	 * The folder containing the Maven repositories. Each releases repo is a folder inside it.
+	 */
+	private final DirectoryProperty repositoriesFolder;
+	/**
+	 * The folder containing checksum files from a {@link GenerateChecksumsTask}, which are reused instead of hashing the artifacts again.
+	 */
+	private final DirectoryProperty checksumsFolder;
+	/**
+	 * The folder the {@link #checksumsFolder} paths are relative to.
+	 */
+	private final DirectoryProperty checksumsBaseFolder;
+	/**
+	 * The name of the GPG key used to sign the artifacts and POMs. If not set, only the signatures from the {@link #checksumsFolder} are
+	 * published.
+	 */
+	private final Property<String> gpgKeyName;
+	/**
+	 * The GPG executable used to sign the artifacts and POMs.
+	 */
+	private final Property<String> gpgExecutable;
+	/**
+	 * Exec operations used to run GPG.
+	 */
+	private final ExecOperations execOperations;
+	/**
+	 * The maximum number of threads used to write the repository.
+	 */
+	private final Property<Integer> maxThreads;
+	/**
+	 * Skips files that are already in the repository with the same content, and fails if a released version's file has different content.
+	 */
+	private final Property<Boolean> idempotent;
+	/**
+	 * The number of files skipped in idempotent mode during the current execution.
+	 */
+	private final AtomicInteger skippedFiles = new AtomicInteger();
+
+	/**
+	 * Creates a new CombineToRepositoryTask.
+	 *
+	 * @param objects
+	 *                ObjectFactory used to create properties.
+	 * @param execOperations
+	 *                ExecOperations used to run GPG.
+	 */
+	@Inject
+	public CombineToRepositoryTask(ObjectFactory objects, ExecOperations execOperations) {
+		this.productsFolder = objects.directoryProperty();
+		this.indexFile = objects.fileProperty();
+		this.defaultVersion = objects.property(String.class);
+		this.defaultReleasesRepoName = objects.property(String.class);
+		this.repositoriesFolder = objects.directoryProperty();
+		this.checksumsFolder = objects.directoryProperty();
+		this.checksumsBaseFolder = objects.directoryProperty();
+		this.gpgKeyName = objects.property(String.class);
+		this.gpgExecutable = objects.property(String.class);
+		this.execOperations = execOperations;
+		this.maxThreads = objects.property(Integer.class);
+		this.idempotent = objects.property(Boolean.class);
+
+		// Defaults
+		gpgExecutable.convention("gpg");
+		maxThreads.convention(Runtime.getRuntime().availableProcessors());
+		idempotent.convention(false);
+	}
+
+	/**
+	 * Gets the {@link #productsFolder} for this task.
+	 *
+	 * @return
+	 *         The {@link #productsFolder} for this task.
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public DirectoryProperty getProductsFolder() {
+		return productsFolder;
+	}
+
+	/**
+	 * Gets the {@link #indexFile} for this task.
+	 *
+	 * @return
+	 *         The {@link #indexFile} for this task.
+	 */
+	@Internal
+	public RegularFileProperty getIndexFile() {
+		return indexFile;
+	}
+
+	/**
+	 * Gets the {@link #defaultVersion} for this task.
+	 *
+	 * @return
+	 *         The {@link #defaultVersion} for this task.
+	 */
+	@Input
+	@Optional
+	public Property<String> getDefaultVersion() {
+		return defaultVersion;
+	}
+
+	/**
+	 * Gets the {@link #defaultReleasesRepoName} for this task.
+	 *
+	 * @return
+	 *         The {@link #defaultReleasesRepoName} for this task.
+	 */
+	@Input
+	@Optional
+	public Property<String> getDefaultReleasesRepoName() {
+		return defaultReleasesRepoName;
+	}
+
+	/**
+	 * Gets the {@link #repositoriesFolder} for this task.
+	 *
+	 * @return
+	 *         The {@link #repositoriesFolder} for this task.
+	 */
+	@Internal
+	public DirectoryProperty getRepositoriesFolder() {
+		return repositoriesFolder;
+	}
+
+	/**
+	 * Gets the {@link #checksumsFolder} for this task.
+	 *
+	 * @return
+	 *         The {@link #checksumsFolder} for this task.
+	 */
+	@InputFiles
+	@Optional
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public DirectoryProperty getChecksumsFolder() {
+		return checksumsFolder;
+	}
+
+	/**
+	 * Gets the {@link #checksumsBaseFolder} for this task.
+	 *
+	 * @return
+	 *         The {@link #checksumsBaseFolder} for this task.
+	 */
+	@Internal
+	public DirectoryProperty getChecksumsBaseFolder() {
+		return checksumsBaseFolder;
+	}
+
+	/**
+	 * Gets the {@link #gpgKeyName} for this task.
+	 *
+	 * @return
+	 *         The {@link #gpgKeyName} for this task.
+	 */
+	@Input
+	@Optional
+	public Property<String> getGpgKeyName() {
+		return gpgKeyName;
+	}
+
+	/**
+	 * Gets the {@link #gpgExecutable} for this task.
+	 *
+	 * @return
+	 *         The {@link #gpgExecutable} for this task.
+	 */
+	@Input
+	public Property<String> getGpgExecutable() {
+		return gpgExecutable;
+	}
+
+	/**
+	 * Gets the {@link #maxThreads} for this task.
+	 *
+	 * @return
+	 *         The {@link #maxThreads} for this task.
+	 */
+	@Internal
+	public Property<Integer> getMaxThreads() {
+		return maxThreads;
+	}
+
+	/**
+	 * Gets the {@link #idempotent} for this task.
+	 *
+	 * @return
+	 *         The {@link #idempotent} for this task.
+	 */
+	@Input
+	public Property<Boolean> getIdempotent() {
+		return idempotent;
+	}
+
+	/**
+	 * Gets the description of this task.
+	 *
+	 * @return
+	 *         The description of this task.
+	 */
+	@Override
+	public String getDescription() {
+		return "Writes the combined artifacts directly into the local Maven repositories.";
+	}
+
+	/**
+	 * Gets the group of this task.
+	 *
+	 * @return
+	 *         The group of this task.
+	 */
+	@Override
+	public String getGroup() {
+		return VendorToolsPlugin.BUILD_TASK_GROUP;
+	}
+
+	/**
+	 * Discovers the products and writes every publication into its releases repo.
+	 *
+	 * @throws InterruptedException
+	 *                 If the task is interrupted while waiting for the writes to finish.
+	 */
+	@TaskAction
+	public void execute() throws InterruptedException {
+		CombinerProducts products = new CombinerProducts(productsFolder.getAsFile().get(), indexFile.getAsFile().getOrNull(), true, defaultVersion,
+				defaultReleasesRepoName);
+		List<ProductFolder> allProducts = new ArrayList<ProductFolder>(products.getProducts());
+		allProducts.addAll(products.getBundledProducts());
+		List<CombinerPublication> publications = CombinerPublication.fromProducts(allProducts);
+		File repositories = repositoriesFolder.getAsFile().get();
+
+		// Group the versions being published by artifact folder, so each maven-metadata.xml is only written once
+		Map<Path, Set<String>> metadataVersions = new LinkedHashMap<Path, Set<String>>();
+		Map<Path, CombinerPublication> metadataPublications = new LinkedHashMap<Path, CombinerPublication>();
+		Set<Path> targets = new LinkedHashSet<Path>();
+
+		Map<File, FileSystem> bundleFileSystems = new HashMap<File, FileSystem>();
+		List<Runnable> writes = new ArrayList<Runnable>();
+		String lastUpdated = timestamp();
+		for (CombinerPublication publication : publications) {
+			Path repository = repositories.toPath().resolve(publication.getReleasesRepoName());
+
+			for (CombinerArtifact artifact : publication.getArtifacts()) {
+				Path target = repository.resolve(publication.getFilePath(artifact.getClassifier(), artifact.getExtension()));
+				if (!targets.add(target)) {
+					throw new GradleException(String.format("Multiple artifacts would be published to %s", target));
+				}
+				if (!publication.isSnapshot()) {
+					writes.add(() -> writeArtifact(artifact, target, target, publication.getVersion(), bundleFileSystems));
+				}
+			}
+
+			if (publication.isSnapshot()) {
+				// The files of a snapshot build share a build number, so they are written together
+				writes.add(() -> writeSnapshot(publication, repository, lastUpdated, bundleFileSystems));
+			} else {
+				Path pom = repository.resolve(publication.getFilePath("", "pom"));
+				writes.add(() -> writePom(publication.toPom().getBytes(StandardCharsets.UTF_8), pom, pom, publication.getVersion()));
+			}
+
+			Path metadata = repository.resolve(publication.getArtifactPath()).resolve("maven-metadata.xml");
+			metadataVersions.computeIfAbsent(metadata, (m) -> new LinkedHashSet<String>()).add(publication.getVersion());
+			metadataPublications.putIfAbsent(metadata, publication);
+		}
+
+		metadataVersions.forEach((metadata, versions) -> writes.add(() -> writeMetadata(metadataPublications.get(metadata), versions, metadata, lastUpdated)));
+
+		// Run the writes on a bounded thread pool, with each bundle opened once and shared by the writes reading from it
+		skippedFiles.set(0);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxThreads.get()));
+		try {
+			for (ProductFolder bundle : products.getBundledProducts()) {
+				bundleFileSystems.put(bundle.getFolder(), FileSystems.newFileSystem(bundle.getFolder().toPath(), (ClassLoader) null));
+			}
+
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (Runnable write : writes) {
+				futures.add(executor.submit(write));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+
+			if (idempotent.get()) {
+				getLogger().lifecycle("Skipped {} files that were already published with the same content", skippedFiles.get());
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof GradleException) {
+				throw (GradleException) e.getCause();
+			}
+			throw new GradleException("Unable to write the Maven repository", e.getCause());
+		} catch (IOException e) {
+			throw new GradleException("Unable to open a product bundle", e);
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+			for (FileSystem bundleFileSystem : bundleFileSystems.values()) {
+				try {
+					bundleFileSystem.close();
+				} catch (IOException e) {
+					getLogger().warn("Unable to close a product bundle", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies an artifact into the repository and writes its checksum and {@link #writeSignature(Path, File) signature} files. Checksums
+	 * from the {@link #checksumsFolder} are reused if they are all present, otherwise the artifact is hashed while it's copied, so it's
+	 * only read once. Bundled artifacts are streamed out of their bundle. In {@link #idempotent} mode, the artifact isn't written if it's
+	 * {@link #isPublished(Path, Map, String) already published}, but a missing signature is still added.
+	 *
+	 * @param artifact
+	 *                The artifact.
+	 * @param target
+	 *                The path to write the artifact to.
+	 * @param published
+	 *                The path the artifact is currently published at, which is the target unless it's a snapshot, or {@code null} if it
+	 *                isn't published yet.
+	 * @param version
+	 *                The version the artifact is published as.
+	 * @param bundleFileSystems
+	 *                The open bundle file systems, by bundle file.
+	 * @return
+	 *         {@code true} if the artifact was written, or {@code false} if it was already published.
+	 */
+	private boolean writeArtifact(CombinerArtifact artifact, Path target, Path published, String version, Map<File, FileSystem> bundleFileSystems) {
+		try {
+			Files.createDirectories(target.getParent());
+			Path temp = tempFile(target);
+
+			File source = artifact.isBundled() ? null : artifact.getFile();
+			try {
+				// Reuse the generated checksums if there are any, so a published file doesn't have to be read at all
+				Map<String, String> checksums = source != null ? readChecksums(source) : null;
+				if (checksums != null) {
+					if (isPublished(published, checksums, version)) {
+						writeMissingSignature(published, source);
+						return false;
+					}
+					Files.copy(source.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+				} else {
+					// Otherwise hash the artifact while it's copied, so it's only read once
+					Path input = artifact.isBundled() ? bundleFileSystems.get(artifact.getFile()).getPath(artifact.getEntryName()) : source.toPath();
+					try (InputStream inputStream = Files.newInputStream(input); OutputStream outputStream = Files.newOutputStream(temp)) {
+						checksums = Checksums.copy(inputStream, outputStream);
+					}
+					if (isPublished(published, checksums, version)) {
+						writeMissingSignature(published, source);
+						return false;
+					}
+				}
+
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				writeChecksums(checksums, target);
+				writeSignature(target, source);
+				return true;
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a POM into the repository along with its checksum and signature files. In {@link #idempotent} mode, the POM isn't written
+	 * if it's {@link #isPublished(Path, Map, String) already published}.
+	 *
+	 * @param contents
+	 *                The contents of the POM.
+	 * @param target
+	 *                The path to write the POM to.
+	 * @param published
+	 *                The path the POM is currently published at, which is the target unless it's a snapshot, or {@code null} if it isn't
+	 *                published yet.
+	 * @param version
+	 *                The version the POM is published as.
+	 * @return
+	 *         {@code true} if the POM was written, or {@code false} if it was already published.
+	 */
+	private boolean writePom(byte[] contents, Path target, Path published, String version) {
+		try {
+			if (isPublished(published, Checksums.compute(new ByteArrayInputStream(contents)), version)) {
+				writeMissingSignature(published, null);
+				return false;
+			}
+			writeWithChecksums(contents, target);
+			writeSignature(target, null);
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a snapshot build of a publication, in the same layout as maven-publish. The artifacts and POM get file names with the
+	 * timestamp and the next build number in place of {@code SNAPSHOT}, and the {@code maven-metadata.xml} of the version folder lists the
+	 * file names of the latest build. In {@link #idempotent} mode, nothing is written if none of the files changed. If any of them
+	 * changed, every file is written under the new build, so the {@code <snapshot>} of the metadata names a complete build for resolvers
+	 * that build the file names from it.
+	 *
+	 * @param publication
+	 *                The snapshot publication.
+	 * @param repository
+	 *                The folder of the repository.
+	 * @param lastUpdated
+	 *                The time of the build, in the format of {@link #timestamp()}.
+	 * @param bundleFileSystems
+	 *                The open bundle file systems, by bundle file.
+	 */
+	private void writeSnapshot(CombinerPublication publication, Path repository, String lastUpdated, Map<File, FileSystem> bundleFileSystems) {
+		try {
+			Path metadata = repository.resolve(publication.getVersionPath()).resolve("maven-metadata.xml");
+			Map<String, SnapshotVersion> snapshotVersions = new LinkedHashMap<String, SnapshotVersion>();
+			int buildNumber = 1;
+			if (Files.isRegularFile(metadata)) {
+				String existing = new String(Files.readAllBytes(metadata), StandardCharsets.UTF_8);
+				Matcher buildNumberMatcher = SNAPSHOT_BUILD_NUMBER_PATTERN.matcher(existing);
+				if (buildNumberMatcher.find()) {
+					buildNumber = Integer.parseInt(buildNumberMatcher.group(1)) + 1;
+				}
+				Matcher matcher = SNAPSHOT_VERSION_PATTERN.matcher(existing);
+				while (matcher.find()) {
+					SnapshotVersion snapshotVersion = new SnapshotVersion(matcher.group(1) != null ? matcher.group(1) : "", matcher.group(2),
+							matcher.group(3), matcher.group(4));
+					snapshotVersions.put(snapshotVersion.getKey(), snapshotVersion);
+				}
+			}
+
+			String timestamp = String.format("%s.%s", lastUpdated.substring(0, 8), lastUpdated.substring(8));
+			String fileVersion = publication.getSnapshotVersion(timestamp, buildNumber);
+			byte[] pomContents = publication.toPom().getBytes(StandardCharsets.UTF_8);
+			Path pomTarget = repository.resolve(publication.getFilePath("", "pom", fileVersion));
+			List<SnapshotVersion> written = new ArrayList<SnapshotVersion>();
+			List<CombinerArtifact> unchanged = new ArrayList<CombinerArtifact>();
+			for (CombinerArtifact artifact : publication.getArtifacts()) {
+				SnapshotVersion current = new SnapshotVersion(artifact.getClassifier(), artifact.getExtension(), fileVersion, lastUpdated);
+				Path target = repository.resolve(publication.getFilePath(current.classifier, current.extension, fileVersion));
+				if (writeArtifact(artifact, target, getPublishedFile(publication, repository, snapshotVersions.get(current.getKey())),
+						publication.getVersion(), bundleFileSystems)) {
+					written.add(current);
+				} else {
+					unchanged.add(artifact);
+				}
+			}
+			SnapshotVersion pom = new SnapshotVersion("", "pom", fileVersion, lastUpdated);
+			boolean pomWritten = writePom(pomContents, pomTarget, getPublishedFile(publication, repository, snapshotVersions.get(pom.getKey())),
+					publication.getVersion());
+
+			if (written.isEmpty() && !pomWritten) {
+				skippedFiles.incrementAndGet();
+				return;
+			}
+
+			// The files that didn't change are written under the new build too, so every file of the build exists
+			for (CombinerArtifact artifact : unchanged) {
+				SnapshotVersion current = new SnapshotVersion(artifact.getClassifier(), artifact.getExtension(), fileVersion, lastUpdated);
+				writeArtifact(artifact, repository.resolve(publication.getFilePath(current.classifier, current.extension, fileVersion)), null,
+						publication.getVersion(), bundleFileSystems);
+				written.add(current);
+			}
+			if (!pomWritten) {
+				writePom(pomContents, pomTarget, null, publication.getVersion());
+			}
+			written.add(pom);
+
+			StringBuilder contents = new StringBuilder();
+			contents.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			contents.append("<metadata modelVersion=\"1.1.0\">\n");
+			contents.append(String.format("  <groupId>%s</groupId>\n", publication.getGroupId()));
+			contents.append(String.format("  <artifactId>%s</artifactId>\n", publication.getArtifactId()));
+			contents.append("  <versioning>\n");
+			contents.append(String.format("    <lastUpdated>%s</lastUpdated>\n", lastUpdated));
+			contents.append("    <snapshot>\n");
+			contents.append(String.format("      <timestamp>%s</timestamp>\n", timestamp));
+			contents.append(String.format("      <buildNumber>%d</buildNumber>\n", buildNumber));
+			contents.append("    </snapshot>\n");
+			contents.append("    <snapshotVersions>\n");
+			for (SnapshotVersion snapshotVersion : written) {
+				contents.append("      <snapshotVersion>\n");
+				if (!snapshotVersion.classifier.isEmpty()) {
+					contents.append(String.format("        <classifier>%s</classifier>\n", snapshotVersion.classifier));
+				}
+				contents.append(String.format("        <extension>%s</extension>\n", snapshotVersion.extension));
+				contents.append(String.format("        <value>%s</value>\n", snapshotVersion.value));
+				contents.append(String.format("        <updated>%s</updated>\n", snapshotVersion.updated));
+				contents.append("      </snapshotVersion>\n");
+			}
+			contents.append("    </snapshotVersions>\n");
+			contents.append("  </versioning>\n");
+			contents.append(String.format("  <version>%s</version>\n", publication.getVersion()));
+			contents.append("</metadata>\n");
+
+			writeWithChecksums(contents.toString().getBytes(StandardCharsets.UTF_8), metadata);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Gets the file a snapshot file is currently published as.
+	 *
+	 * @param publication
+	 *                The snapshot publication.
+	 * @param repository
+	 *                The folder of the repository.
+	 * @param snapshotVersion
+	 *                The entry of the file in the snapshot {@code maven-metadata.xml}, or {@code null} if it has none.
+	 * @return
+	 *         The published file, or {@code null} if the file isn't published yet.
+	 */
+	private static Path getPublishedFile(CombinerPublication publication, Path repository, SnapshotVersion snapshotVersion) {
+		return snapshotVersion != null
+				? repository.resolve(publication.getFilePath(snapshotVersion.classifier, snapshotVersion.extension, snapshotVersion.value))
+				: null;
+	}
+
+	/**
+	 * Writes the {@code .asc} signature of a file in the repository. The signature written by the {@link GenerateChecksumsTask} for the
+	 * source file is copied if there is one, otherwise the file is signed with GPG if a {@link #gpgKeyName} is set.
+	 *
+	 * @param target
+	 *                The file in the repository.
+	 * @param source
+	 *                The file the artifact was copied from, or {@code null} if it wasn't copied from a file in the products folder.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the signature.
+	 */
+	private void writeSignature(Path target, File source) throws IOException {
+		Path signature = target.resolveSibling(target.getFileName() + ".asc");
+		Path temp = tempFile(signature);
+		try {
+			File generated = source != null ? getGeneratedSignature(source) : null;
+			if (generated != null) {
+				Files.copy(generated.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+			} else if (gpgKeyName.isPresent()) {
+				execOperations.exec(spec -> {
+					spec.executable(gpgExecutable.get());
+					spec.args("--batch", "--yes", "--local-user", gpgKeyName.get(), "--armor", "--detach-sign",
+							"--output", temp.toString(), target.toString());
+				});
+			} else {
+				Files.deleteIfExists(signature);
+				return;
+			}
+			Files.move(temp, signature, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Writes the {@code .asc} signature of a file that was already published, if it doesn't have one yet.
+	 *
+	 * @param target
+	 *                The file in the repository.
+	 * @param source
+	 *                The file the artifact was copied from, or {@code null} if it wasn't copied from a file in the products folder.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the signature.
+	 */
+	private void writeMissingSignature(Path target, File source) throws IOException {
+		if (!Files.exists(target.resolveSibling(target.getFileName() + ".asc"))) {
+			writeSignature(target, source);
+		}
+	}
+
+	/**
+	 * Gets the signature the {@link GenerateChecksumsTask} wrote for a file.
+	 *
+	 * @param source
+	 *                The file that was signed.
+	 * @return
+	 *         The signature file, or {@code null} if the {@link #checksumsFolder} isn't set or has no signature for the file.
+	 */
+	private File getGeneratedSignature(File source) {
+		if (!checksumsFolder.isPresent() || !checksumsBaseFolder.isPresent()) {
+			return null;
+		}
+		File baseFile = GenerateChecksumsTask.getChecksumBaseFile(checksumsFolder.getAsFile().get(), checksumsBaseFolder.getAsFile().get(), source);
+		File signature = new File(baseFile.getPath() + ".asc");
+		return signature.isFile() ? signature : null;
+	}
+
+	/**
+	 * Checks whether a file is already in the repository with the same content, when in {@link #idempotent} mode. The existing content
+	 * is identified by its {@code .sha256} or {@code .sha1} sidecar, or by hashing the file if it has neither. Missing sidecars of a
+	 * matching file are filled in.
+	 *
+	 * @param target
+	 *                The file in the repository, or {@code null} if there is none.
+	 * @param checksums
+	 *                The checksums of the new content, keyed by extension.
+	 * @param version
+	 *                The version the file is published as.
+	 * @return
+	 *         {@code true} if the file doesn't need to be written.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading the existing checksums.
+	 * @throws GradleException
+	 *                 If the file belongs to a released version and has different content.
+	 */
+	private boolean isPublished(Path target, Map<String, String> checksums, String version) throws IOException {
+		if (!idempotent.get() || target == null || !Files.isRegularFile(target)) {
+			return false;
+		}
+
+		String algorithm = null;
+		String existing = null;
+		for (String extension : IDEMPOTENT_CHECKSUMS) {
+			Path sidecar = target.resolveSibling(target.getFileName() + "." + extension);
+			if (Files.isRegularFile(sidecar)) {
+				algorithm = extension;
+				existing = new String(Files.readAllBytes(sidecar), StandardCharsets.US_ASCII).trim();
+				break;
+			}
+		}
+		if (existing == null) {
+			algorithm = IDEMPOTENT_CHECKSUMS[0];
+			existing = Checksums.compute(target.toFile()).get(algorithm);
+		}
+
+		if (existing.equalsIgnoreCase(checksums.get(algorithm))) {
+			for (Map.Entry<String, String> checksum : checksums.entrySet()) {
+				Path sidecar = target.resolveSibling(target.getFileName() + "." + checksum.getKey());
+				if (!Files.exists(sidecar)) {
+					writeAtomically(checksum.getValue().getBytes(StandardCharsets.US_ASCII), sidecar);
+				}
+			}
+			skippedFiles.incrementAndGet();
+			return true;
+		}
+
+		if (!version.endsWith("-SNAPSHOT")) {
+			throw new GradleException(String.format("%s is already published for release %s with different content (%s %s, new %s %s)",
+					target, version, algorithm, existing, algorithm, checksums.get(algorithm)));
+		}
+		return false;
+	}
+
+	/**
+	 * Writes generated contents into the repository along with their checksum files.
+	 *
+	 * @param contents
+	 *                The contents to write.
+	 * @param target
+	 *                The path to write the contents to.
+	 */
+	private static void writeWithChecksums(byte[] contents, Path target) {
+		try {
+			Files.createDirectories(target.getParent());
+			writeAtomically(contents, target);
+			writeChecksums(Checksums.compute(new ByteArrayInputStream(contents)), target);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a {@code maven-metadata.xml} file, merging in the versions from the existing file in the same way maven-publish does. The
+	 * latest version is the newest of all the listed versions in {@link MavenVersion Maven order}, and the release version is the newest
+	 * one that isn't a snapshot, so publishing an older version doesn't move them back. In {@link #idempotent} mode, the file isn't
+	 * rewritten if it already lists every version being published and the same latest version.
+	 *
+	 * @param publication
+	 *                A publication in the artifact folder.
+	 * @param versions
+	 *                The versions being published.
+	 * @param target
+	 *                The path of the {@code maven-metadata.xml} file.
+	 * @param lastUpdated
+	 *                The timestamp to write.
+	 */
+	private void writeMetadata(CombinerPublication publication, Set<String> versions, Path target, String lastUpdated) {
+		try {
+			Set<String> allVersions = new LinkedHashSet<String>();
+			String existingLatest = null;
+			if (Files.isRegularFile(target)) {
+				String existing = new String(Files.readAllBytes(target), StandardCharsets.UTF_8);
+				Matcher matcher = METADATA_VERSION_PATTERN.matcher(existing);
+				while (matcher.find()) {
+					allVersions.add(matcher.group(1));
+				}
+				Matcher latestMatcher = METADATA_LATEST_PATTERN.matcher(existing);
+				if (latestMatcher.find()) {
+					existingLatest = latestMatcher.group(1);
+				}
+			}
+
+			boolean listed = allVersions.containsAll(versions);
+			allVersions.addAll(versions);
+			String latest = null;
+			String release = null;
+			for (String version : allVersions) {
+				latest = MavenVersion.max(latest, version);
+				if (!version.endsWith("-SNAPSHOT")) {
+					release = MavenVersion.max(release, version);
+				}
+			}
+
+			if (idempotent.get() && listed && latest.equals(existingLatest)) {
+				skippedFiles.incrementAndGet();
+				return;
+			}
+
+			StringBuilder metadata = new StringBuilder();
+			metadata.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			metadata.append("<metadata>\n");
+			metadata.append(String.format("  <groupId>%s</groupId>\n", publication.getGroupId()));
+			metadata.append(String.format("  <artifactId>%s</artifactId>\n", publication.getArtifactId()));
+			metadata.append("  <versioning>\n");
+			metadata.append(String.format("    <latest>%s</latest>\n", latest));
+			if (release != null) {
+				metadata.append(String.format("    <release>%s</release>\n", release));
+			}
+			metadata.append("    <versions>\n");
+			for (String version : allVersions) {
+				metadata.append(String.format("      <version>%s</version>\n", version));
+			}
+			metadata.append("    </versions>\n");
+			metadata.append(String.format("    <lastUpdated>%s</lastUpdated>\n", lastUpdated));
+			metadata.append("  </versioning>\n");
+			metadata.append("</metadata>\n");
+
+			writeWithChecksums(metadata.toString().getBytes(StandardCharsets.UTF_8), target);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the checksums of a file from the {@link #checksumsFolder}. The folder is the output of the {@link GenerateChecksumsTask} this
+	 * task depends on, which Gradle reruns whenever any of its input files change, so the checksums in it always match the current
+	 * contents of the files and don't need their own freshness check.
+	 *
+	 * @param source
+	 *                The file to read the checksums of.
+	 * @return
+	 *         The checksums keyed by extension, or {@code null} if the folder isn't set or any checksum is missing.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading the checksums.
+	 */
+	private Map<String, String> readChecksums(File source) throws IOException {
+		if (!checksumsFolder.isPresent() || !checksumsBaseFolder.isPresent()) {
+			return null;
+		}
+
+		File baseFile = GenerateChecksumsTask.getChecksumBaseFile(checksumsFolder.getAsFile().get(), checksumsBaseFolder.getAsFile().get(), source);
+		Map<String, String> checksums = new LinkedHashMap<String, String>();
+		for (String extension : Checksums.ALGORITHMS.keySet()) {
+			File checksumFile = new File(baseFile.getPath() + "." + extension);
+			if (!checksumFile.isFile()) {
+				return null;
+			}
+			checksums.put(extension, new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.US_ASCII));
+		}
+		return checksums;
+	}
+
+	/**
+	 * Writes the checksum files for a file in the repository, each atomically.
+	 *
+	 * @param checksums
+	 *                The checksums keyed by extension.
+	 * @param target
+	 *                The file the checksums belong to.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the files.
+	 */
+	private static void writeChecksums(Map<String, String> checksums, Path target) throws IOException {
+		for (Map.Entry<String, String> checksum : checksums.entrySet()) {
+			writeAtomically(checksum.getValue().getBytes(StandardCharsets.US_ASCII), target.resolveSibling(target.getFileName() + "." + checksum.getKey()));
+		}
+	}
+
+	/**
+	 * Writes a file by writing a temporary file next to it and renaming it into place.
+	 *
+	 * @param contents
+	 *                The contents to write.
+	 * @param target
+	 *                The file to write.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the file.
+	 */
+	private static void writeAtomically(byte[] contents, Path target) throws IOException {
+		Path temp = tempFile(target);
+		try {
+			Files.write(temp, contents);
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Gets a temporary file path next to a target file.
+	 *
+	 * @param target
+	 *                The target file.
+	 * @return
+	 *         The temporary file path.
+	 */
+	private static Path tempFile(Path target) {
+		return target.resolveSibling(String.format(".%s.%d.tmp", target.getFileName(), Thread.currentThread().getId()));
+	}
+
+	/**
+	 * Gets the current time in the format used by {@code maven-metadata.xml}.
+	 *
+	 * @return
+	 *         The current UTC time as {@code yyyyMMddHHmmss}.
+	 */
+	private static String timestamp() {
+		SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.format(new Date());
+	}
+
+	/**
+	 * A file of a snapshot build, as listed in the {@code maven-metadata.xml} of the version folder.
+	 */
+	private static final class SnapshotVersion {
+		/**
+		 * The classifier of the file, or an empty string if it has none.
+		 */
+		private final String classifier;
+		/**
+		 * The extension of the file.
+		 */
+		private final String extension;
+		/**
+		 * The version in the file name.
+		 */
+		private final String value;
+		/**
+		 * The time the file was written, in the format of {@link CombineToRepositoryTask#timestamp()}.
+		 */
+		private final String updated;
+
+		/**
+		 * Creates a new SnapshotVersion.
+		 *
+		 * @param classifier
+		 *                The classifier of the file, or an empty string if it has none.
+		 * @param extension
+		 *                The extension of the file.
+		 * @param value
+		 *                The version in the file name.
+		 * @param updated
+		 *                The time the file was written.
+		 */
+		private SnapshotVersion(String classifier, String extension, String value, String updated) {
+			this.classifier = classifier;
+			this.extension = extension;
+			this.value = value;
+			this.updated = updated;
+		}
+
+		/**
+		 * Gets the key identifying the file within its build.
+		 *
+		 * @return
+		 *         The classifier and extension of the file.
+		 */
+		private String getKey() {
+			return String.format("%s:%s", classifier, extension);
+		}
+	}
+}
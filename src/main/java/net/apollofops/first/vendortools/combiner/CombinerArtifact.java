@@ -0,0 +1,225 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.File;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An artifact file found in a products folder, with the Maven coordinates decoded from its file name. An artifact can also be an entry in a
+ * product bundle zip, in which case the {@link #file} is the bundle.
+ */
+public final class CombinerArtifact {
+	/**
+	 * The pattern used to decode the group ID, artifact ID and classifier from an artifact file name.
+	 */
+	private static final Pattern ARTIFACT_NAME_PATTERN = Pattern.compile("([_M_]*)_GROUP_([^\\.]+)_ID_([^\\.]+)_CLS([^\\.]*).");
+
+	/**
+	 * The artifact file, or the bundle zip containing the artifact.
+	 */
+	private final File file;
+	/**
+	 * The path of the artifact inside the bundle zip, or {@code null} if the artifact isn't in a bundle.
+	 */
+	private final String entryName;
+	/**
+	 * The group ID of the artifact, with underscores in place of periods.
+	 */
+	private final String groupId;
+	/**
+	 * The artifact ID of the artifact.
+	 */
+	private final String artifactId;
+	/**
+	 * The classifier of the artifact, or an empty string if it has none.
+	 */
+	private final String classifier;
+
+	/**
+	 * Creates a new CombinerArtifact.
+	 *
+	 * @param file
+	 *                The artifact file.
+	 * @param groupId
+	 *                The encoded group ID of the artifact.
+	 * @param artifactId
+	 *                The artifact ID of the artifact.
+	 * @param classifier
+	 *                The classifier of the artifact, or an empty string if it has none.
+	 */
+	public CombinerArtifact(File file, String groupId, String artifactId, String classifier) {
+		this(file, null, groupId, artifactId, classifier);
+	}
+
+	/**
+	 * Creates a new CombinerArtifact.
+	 *
+	 * @param file
+	 *                The artifact file, or the bundle zip containing the artifact.
+	 * @param entryName
+	 *                The path of the artifact inside the bundle zip, or {@code null} if the artifact isn't in a bundle.
+	 * @param groupId
+	 *                The encoded group ID of the artifact.
+	 * @param artifactId
+	 *                The artifact ID of the artifact.
+	 * @param classifier
+	 *                The classifier of the artifact, or an empty string if it has none.
+	 */
+	public CombinerArtifact(File file, String entryName, String groupId, String artifactId, String classifier) {
+		this.file = file;
+		this.entryName = entryName;
+		this.groupId = groupId;
+		this.artifactId = artifactId;
+		this.classifier = classifier;
+	}
+
+	/**
+	 * Decodes an artifact from its file name.
+	 *
+	 * @param file
+	 *                The artifact file.
+	 * @return
+	 *         The decoded artifact, or {@code null} if the file name isn't an encoded artifact name.
+	 */
+	public static CombinerArtifact fromFile(File file) {
+		return fromName(file, null, file.getName());
+	}
+
+	/**
+	 * Decodes an artifact in a product bundle zip from its entry name.
+	 *
+	 * @param bundle
+	 *                The bundle zip.
+	 * @param entryName
+	 *                The path of the artifact inside the bundle zip.
+	 * @return
+	 *         The decoded artifact, or {@code null} if the entry name isn't an encoded artifact name.
+	 */
+	public static CombinerArtifact fromBundleEntry(File bundle, String entryName) {
+		return fromName(bundle, entryName, entryName.substring(entryName.lastIndexOf('/') + 1));
+	}
+
+	/**
+	 * Decodes an artifact from its name.
+	 *
+	 * @param file
+	 *                The artifact file, or the bundle zip containing the artifact.
+	 * @param entryName
+	 *                The path of the artifact inside the bundle zip, or {@code null} if the artifact isn't in a bundle.
+	 * @param name
+	 *                The file name of the artifact.
+	 * @return
+	 *         The decoded artifact, or {@code null} if the name isn't an encoded artifact name.
+	 */
+	private static CombinerArtifact fromName(File file, String entryName, String name) {
+		Matcher matcher = ARTIFACT_NAME_PATTERN.matcher(name);
+
+		if (!matcher.find()) {
+			return null;
+		}
+
+		String classifier = matcher.group(4);
+		return new CombinerArtifact(file, entryName, matcher.group(2), matcher.group(3), classifier.isEmpty() ? "" : classifier.substring(1));
+	}
+
+	/**
+	 * Gets the {@link #file}.
+	 *
+	 * @return
+	 *         The {@link #file} of this artifact.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the {@link #entryName}.
+	 *
+	 * @return
+	 *         The {@link #entryName} of this artifact, or {@code null} if it isn't in a bundle.
+	 */
+	public String getEntryName() {
+		return entryName;
+	}
+
+	/**
+	 * Gets whether this artifact is an entry in a product bundle zip.
+	 *
+	 * @return
+	 *         {@code true} if this artifact is in a bundle.
+	 */
+	public boolean isBundled() {
+		return entryName != null;
+	}
+
+	/**
+	 * Gets the file name of the artifact.
+	 *
+	 * @return
+	 *         The file name, or the last part of the {@link #entryName} for a bundled artifact.
+	 */
+	public String getName() {
+		return entryName != null ? entryName.substring(entryName.lastIndexOf('/') + 1) : file.getName();
+	}
+
+	/**
+	 * Gets the {@link #groupId}.
+	 *
+	 * @return
+	 *         The {@link #groupId} of this artifact.
+	 */
+	public String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * Gets the Maven group ID, which is the {@link #groupId} with underscores replaced with periods.
+	 *
+	 * @return
+	 *         The Maven group ID of this artifact.
+	 */
+	public String getMavenGroupId() {
+		return groupId.replace("_", ".");
+	}
+
+	/**
+	 * Gets the {@link #artifactId}.
+	 *
+	 * @return
+	 *         The {@link #artifactId} of this artifact.
+	 */
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * Gets the {@link #classifier}.
+	 *
+	 * @return
+	 *         The {@link #classifier} of this artifact, or an empty string if it has none.
+	 */
+	public String getClassifier() {
+		return classifier;
+	}
+
+	/**
+	 * Gets the extension of the artifact file.
+	 *
+	 * @return
+	 *         The file extension, without the leading period.
+	 */
+	public String getExtension() {
+		String name = getName();
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Gets the name of the publication this artifact belongs to.
+	 *
+	 * @return
+	 *         The publication name.
+	 */
+	public String getPublicationName() {
+		return String.format("%s%s", groupId, artifactId);
+	}
+}
@@ -0,0 +1,223 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.gradle.api.provider.Provider;
+
+/**
+ * Lazily discovers the {@link ProductFolder product folders} in the combiner's products folder. The products folder is only scanned the
+ * first time the products are requested, and the result is reused after that. If an index file is set, product folders that haven't
+ * changed since the last build are read from the {@link ProductIndex index} instead of being walked again. Only tasks update the index,
+ * so reading the products while the build is configured has no side effects.
+ */
+public final class CombinerProducts {
+	/**
+	 * The name of the metadata file in each products folder.
+	 */
+	public static final String METADATA_FILE_NAME = "metadata.properties";
+
+	/**
+	 * The folder containing the product folders.
+	 */
+	private final File productsFolder;
+	/**
+	 * The {@link ProductIndex} file, or {@code null} to always walk every product folder.
+	 */
+	private final File indexFile;
+	/**
+	 * Whether the {@link #indexFile} is written after a scan that found changed product folders.
+	 */
+	private final boolean updateIndex;
+	/**
+	 * The version to use for products without one in their metadata.
+	 */
+	private final Provider<String> defaultVersion;
+	/**
+	 * The repository name to use for products without one in their metadata.
+	 */
+	private final Provider<String> defaultReleasesRepoName;
+	/**
+	 * The discovered products, or {@code null} if they haven't been discovered yet.
+	 */
+	private List<ProductFolder> products;
+	/**
+	 * The discovered product bundles, or {@code null} if they haven't been discovered yet.
+	 */
+	private List<ProductFolder> bundles;
+
+	/**
+	 * Creates a new CombinerProducts.
+	 *
+	 * @param productsFolder
+	 *                The folder containing the product folders.
+	 * @param indexFile
+	 *                The {@link ProductIndex} file, or {@code null} to always walk every product folder.
+	 * @param updateIndex
+	 *                Whether the index file is written after a scan that found changed product folders.
+	 * @param defaultVersion
+	 *                The version to use for products without one in their metadata.
+	 * @param defaultReleasesRepoName
+	 *                The repository name to use for products without one in their metadata.
+	 */
+	public CombinerProducts(File productsFolder, File indexFile, boolean updateIndex, Provider<String> defaultVersion,
+			Provider<String> defaultReleasesRepoName) {
+		this.productsFolder = productsFolder;
+		this.indexFile = indexFile;
+		this.updateIndex = updateIndex;
+		this.defaultVersion = defaultVersion;
+		this.defaultReleasesRepoName = defaultReleasesRepoName;
+	}
+
+	/**
+	 * Gets the {@link #productsFolder}.
+	 *
+	 * @return
+	 *         The {@link #productsFolder}.
+	 */
+	public File getProductsFolder() {
+		return productsFolder;
+	}
+
+	/**
+	 * Gets the products, scanning the {@link #productsFolder} if it hasn't been scanned yet. A missing products folder has no products.
+	 *
+	 * @return
+	 *         The products in the {@link #productsFolder}.
+	 */
+	public synchronized List<ProductFolder> getProducts() {
+		if (products == null) {
+			products = Collections.unmodifiableList(discover());
+		}
+		return products;
+	}
+
+	/**
+	 * Gets the products in the product bundle zips directly inside the {@link #productsFolder}, reading the bundles if they haven't been
+	 * read yet. Bundles are read through a zip file system, so only their central directory and metadata are read here.
+	 *
+	 * @return
+	 *         The products in the bundles, ordered by bundle name.
+	 */
+	public synchronized List<ProductFolder> getBundledProducts() {
+		if (bundles == null) {
+			File[] files = productsFolder.listFiles((file) -> file.isFile() && file.getName().endsWith(".zip"));
+			if (files == null) {
+				bundles = Collections.emptyList();
+			} else {
+				String version = defaultVersion.getOrNull();
+				String repoName = defaultReleasesRepoName.getOrNull();
+				bundles = Collections.unmodifiableList(Arrays.stream(files)
+						.sorted(Comparator.comparing(File::getName))
+						.parallel()
+						.map((bundle) -> ProductFolder.readBundle(bundle, version, repoName))
+						.collect(Collectors.toList()));
+			}
+		}
+		return bundles;
+	}
+
+	/**
+	 * Lists the product folders in a products folder along with their metadata and artifact names, without applying any defaults. The listing
+	 * changes whenever the products found by a scan would change, so it can be used as a configuration cache input instead of the scan. The
+	 * index is only read.
+	 *
+	 * @param productsFolder
+	 *                The folder containing the product folders.
+	 * @param indexFile
+	 *                The {@link ProductIndex} file used to skip walking unchanged folders.
+	 * @return
+	 *         One line for each product folder and artifact, ordered by folder name.
+	 */
+	public static List<String> list(File productsFolder, File indexFile) {
+		File[] files = productsFolder.listFiles(File::isDirectory);
+		if (files == null) {
+			return Collections.emptyList();
+		}
+
+		List<String> listing = new ArrayList<String>();
+		scan(files, indexFile, productsFolder, false).entrySet().stream()
+				.sorted(Map.Entry.comparingByKey())
+				.forEach((entry) -> {
+					ProductFolder product = entry.getValue().toProductFolder(null, null);
+					listing.add(String.format("%s %s %s", entry.getKey(), product.getVersion(), product.getReleasesRepoName()));
+					for (CombinerArtifact artifact : product.getArtifacts()) {
+						listing.add(String.format("%s/%s", entry.getKey(), artifact.getName()));
+					}
+				});
+		return listing;
+	}
+
+	/**
+	 * Scans product folders, reading the folders that haven't changed since the index was written from the index, and walking the rest in
+	 * parallel.
+	 *
+	 * @param files
+	 *                The product folders.
+	 * @param indexFile
+	 *                The {@link ProductIndex} file.
+	 * @param productsFolder
+	 *                The folder containing the product folders.
+	 * @param save
+	 *                Whether the index is written if any folder changed.
+	 * @return
+	 *         The scan of each product folder, by folder name.
+	 */
+	private static Map<String, FolderScan> scan(File[] files, File indexFile, File productsFolder, boolean save) {
+		ProductIndex index = ProductIndex.load(indexFile, productsFolder);
+		Map<String, FolderScan> scans = Arrays.stream(files)
+				.parallel()
+				.collect(Collectors.toConcurrentMap(File::getName, (folder) -> {
+					FolderScan scan = index.get(folder);
+					return scan != null ? scan : FolderScan.scan(folder);
+				}));
+
+		if (save && !index.matches(scans)) {
+			try {
+				index.save(scans);
+			} catch (IOException e) {
+				// The index is only a cache, so the products can still be used without it
+				indexFile.delete();
+			}
+		}
+		return scans;
+	}
+
+	/**
+	 * Scans the {@link #productsFolder} for product folders. Each changed product folder is walked in parallel.
+	 *
+	 * @return
+	 *         The products found, ordered by folder name.
+	 */
+	private List<ProductFolder> discover() {
+		File[] files = productsFolder.listFiles(File::isDirectory);
+		if (files == null) {
+			return Collections.emptyList();
+		}
+
+		String version = defaultVersion.getOrNull();
+		String repoName = defaultReleasesRepoName.getOrNull();
+
+		if (indexFile == null) {
+			return Arrays.stream(files)
+					.sorted(Comparator.comparing(File::getName))
+					.parallel()
+					.map((folder) -> ProductFolder.read(folder, version, repoName))
+					.collect(Collectors.toList());
+		}
+
+		Map<String, FolderScan> scans = scan(files, indexFile, productsFolder, updateIndex);
+
+		return scans.entrySet().stream()
+				.sorted(Map.Entry.comparingByKey())
+				.map((entry) -> entry.getValue().toProductFolder(version, repoName))
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,265 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.Named;
+
+/**
+ * A Maven publication made up of the {@link CombinerArtifact artifacts} with the same group ID and artifact ID, along with the version and
+ * releases repo of the {@link ProductFolder} it was first found in.
+ */
+public final class CombinerPublication implements Named {
+	/**
+	 * The suffix of snapshot versions.
+	 */
+	private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+
+	/**
+	 * The name of the publication.
+	 */
+	private final String name;
+	/**
+	 * The Maven group ID of the publication.
+	 */
+	private final String groupId;
+	/**
+	 * The artifact ID of the publication.
+	 */
+	private final String artifactId;
+	/**
+	 * The version of the publication.
+	 */
+	private final String version;
+	/**
+	 * The name of the repository the publication is published to.
+	 */
+	private final String releasesRepoName;
+	/**
+	 * The artifacts in the publication.
+	 */
+	private final List<CombinerArtifact> artifacts = new ArrayList<CombinerArtifact>();
+
+	/**
+	 * Creates a new CombinerPublication.
+	 *
+	 * @param name
+	 *                The name of the publication.
+	 * @param groupId
+	 *                The Maven group ID of the publication.
+	 * @param artifactId
+	 *                The artifact ID of the publication.
+	 * @param version
+	 *                The version of the publication.
+	 * @param releasesRepoName
+	 *                The name of the repository the publication is published to.
+	 */
+	public CombinerPublication(String name, String groupId, String artifactId, String version, String releasesRepoName) {
+		this.name = name;
+		this.groupId = groupId;
+		this.artifactId = artifactId;
+		this.version = version;
+		this.releasesRepoName = releasesRepoName;
+	}
+
+	/**
+	 * Groups the artifacts of a set of products into publications. An artifact is added to the publication that was first created for its
+	 * group ID and artifact ID, so the version and repository come from the first product it appears in.
+	 *
+	 * @param products
+	 *                The products to group.
+	 * @return
+	 *         The publications, in the order they were first found.
+	 */
+	public static List<CombinerPublication> fromProducts(List<ProductFolder> products) {
+		Map<String, CombinerPublication> publications = new LinkedHashMap<String, CombinerPublication>();
+
+		for (ProductFolder product : products) {
+			for (CombinerArtifact artifact : product.getArtifacts()) {
+				publications.computeIfAbsent(artifact.getPublicationName(), (name) -> new CombinerPublication(name,
+						artifact.getMavenGroupId(), artifact.getArtifactId(), product.getVersion(), product.getReleasesRepoName()))
+						.artifacts.add(artifact);
+			}
+		}
+
+		return new ArrayList<CombinerPublication>(publications.values());
+	}
+
+	/**
+	 * Gets the {@link #name}.
+	 *
+	 * @return
+	 *         The {@link #name} of this publication.
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the {@link #groupId}.
+	 *
+	 * @return
+	 *         The Maven {@link #groupId} of this publication.
+	 */
+	public String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * Gets the {@link #artifactId}.
+	 *
+	 * @return
+	 *         The {@link #artifactId} of this publication.
+	 */
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * Gets the {@link #version}.
+	 *
+	 * @return
+	 *         The {@link #version} of this publication.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the {@link #releasesRepoName}.
+	 *
+	 * @return
+	 *         The {@link #releasesRepoName} of this publication.
+	 */
+	public String getReleasesRepoName() {
+		return releasesRepoName;
+	}
+
+	/**
+	 * Gets the {@link #artifacts}.
+	 *
+	 * @return
+	 *         The {@link #artifacts} in this publication.
+	 */
+	public List<CombinerArtifact> getArtifacts() {
+		return Collections.unmodifiableList(artifacts);
+	}
+
+	/**
+	 * Gets the path of the artifact's folder in a Maven repository, which contains the {@code maven-metadata.xml} file.
+	 *
+	 * @return
+	 *         The repository path of the artifact folder.
+	 */
+	public String getArtifactPath() {
+		return String.format("%s/%s", groupId.replace('.', '/'), artifactId);
+	}
+
+	/**
+	 * Gets the path of the version's folder in a Maven repository, which contains the files of this publication and, for a snapshot, its
+	 * {@code maven-metadata.xml} file.
+	 *
+	 * @return
+	 *         The repository path of the version folder.
+	 */
+	public String getVersionPath() {
+		return String.format("%s/%s", getArtifactPath(), version);
+	}
+
+	/**
+	 * Gets whether this publication is a snapshot, which is published under unique timestamped file names.
+	 *
+	 * @return
+	 *         Whether the {@link #version} ends with {@code -SNAPSHOT}.
+	 */
+	public boolean isSnapshot() {
+		return version.endsWith(SNAPSHOT_SUFFIX);
+	}
+
+	/**
+	 * Gets the version a snapshot build is published under, in the format maven-publish uses.
+	 *
+	 * @param timestamp
+	 *                The UTC time of the build, as {@code yyyyMMdd.HHmmss}.
+	 * @param buildNumber
+	 *                The number of the build, counting from 1 for each snapshot version.
+	 * @return
+	 *         The {@link #version} with {@code SNAPSHOT} replaced by the timestamp and build number.
+	 */
+	public String getSnapshotVersion(String timestamp, int buildNumber) {
+		return String.format("%s-%s-%d", version.substring(0, version.length() - SNAPSHOT_SUFFIX.length()), timestamp, buildNumber);
+	}
+
+	/**
+	 * Gets the path of a file of this publication in a Maven repository.
+	 *
+	 * @param classifier
+	 *                The classifier of the file, or an empty string if it has none.
+	 * @param extension
+	 *                The extension of the file.
+	 * @return
+	 *         The repository path of the file.
+	 */
+	public String getFilePath(String classifier, String extension) {
+		return getFilePath(classifier, extension, version);
+	}
+
+	/**
+	 * Gets the path of a file of this publication in a Maven repository, named with a different version than the folder it's in, as the
+	 * files of a snapshot build are.
+	 *
+	 * @param classifier
+	 *                The classifier of the file, or an empty string if it has none.
+	 * @param extension
+	 *                The extension of the file.
+	 * @param fileVersion
+	 *                The version in the file name.
+	 * @return
+	 *         The repository path of the file.
+	 */
+	public String getFilePath(String classifier, String extension, String fileVersion) {
+		return String.format("%s/%s-%s%s.%s", getVersionPath(), artifactId, fileVersion, classifier.isEmpty() ? "" : "-" + classifier, extension);
+	}
+
+	/**
+	 * Gets the packaging of this publication, determined in the same way as maven-publish. If there is exactly one artifact without a
+	 * classifier, its extension is the packaging, otherwise the packaging is {@code pom}.
+	 *
+	 * @return
+	 *         The packaging of this publication.
+	 */
+	public String getPackaging() {
+		String packaging = null;
+		for (CombinerArtifact artifact : artifacts) {
+			if (artifact.getClassifier().isEmpty() && !artifact.getExtension().isEmpty()) {
+				if (packaging != null) {
+					return "pom";
+				}
+				packaging = artifact.getExtension();
+			}
+		}
+		return packaging != null ? packaging : "pom";
+	}
+
+	/**
+	 * Creates the POM for this publication, in the same format maven-publish writes for a publication without a component.
+	 *
+	 * @return
+	 *         The POM contents.
+	 */
+	public String toPom() {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<project xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd\" xmlns=\"http://maven.apache.org/POM/4.0.0\"\n"
+				+ "    xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n"
+				+ "  <modelVersion>4.0.0</modelVersion>\n"
+				+ String.format("  <groupId>%s</groupId>\n", groupId)
+				+ String.format("  <artifactId>%s</artifactId>\n", artifactId)
+				+ String.format("  <version>%s</version>\n", version)
+				+ (getPackaging().equals("jar") ? "" : String.format("  <packaging>%s</packaging>\n", getPackaging()))
+				+ "</project>\n";
+	}
+}
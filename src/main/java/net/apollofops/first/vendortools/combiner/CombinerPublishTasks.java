@@ -0,0 +1,209 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.NamedDomainObjectSet;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.publish.PublishingExtension;
+import org.gradle.api.publish.maven.MavenArtifact;
+import org.gradle.api.publish.maven.MavenPublication;
+import org.gradle.api.publish.maven.tasks.PublishToMavenRepository;
+import org.gradle.api.publish.plugins.PublishingPlugin;
+import org.gradle.api.tasks.TaskProvider;
+
+import net.apollofops.first.vendortools.TaskMetricsService;
+import net.apollofops.first.vendortools.VendordepExtension;
+
+/**
+ * Creates the combiner's Maven publications, their repositories, and the tasks that publish each publication to its own releases repo.
+ * The publications found in the products are held in a {@link NamedDomainObjectSet} backed by a provider, which is populated once by
+ * {@link #populate()} while the project is configured. The Maven publication and publish task of each publication are created as it's
+ * added to the set.
+ */
+public final class CombinerPublishTasks {
+	/**
+	 * The project the publications are created in.
+	 */
+	private final Project project;
+	/**
+	 * The publications found in the products.
+	 */
+	private final NamedDomainObjectSet<CombinerPublication> publications;
+	/**
+	 * The repository of each releases repo, by name.
+	 */
+	private final Map<String, MavenArtifactRepository> repositories = new LinkedHashMap<String, MavenArtifactRepository>();
+	/**
+	 * The task publishing each publication to its releases repo, by publication name.
+	 */
+	private final Map<String, TaskProvider<PublishToMavenRepository>> publishTasks = new LinkedHashMap<String, TaskProvider<PublishToMavenRepository>>();
+
+	/**
+	 * Creates a new CombinerPublishTasks.
+	 *
+	 * @param project
+	 *                The project the publications are created in.
+	 * @param products
+	 *                The products to create the publications from.
+	 * @param productsListing
+	 *                The listing of the products, from a {@link ProductsListingSource}. It's read before the products are scanned, so it
+	 *                becomes a configuration cache input.
+	 */
+	public CombinerPublishTasks(Project project, CombinerProducts products, Provider<List<String>> productsListing) {
+		this.project = project;
+		this.publications = project.getObjects().namedDomainObjectSet(CombinerPublication.class);
+		publications.addAllLater(productsListing.map((listing) -> createRepositories(CombinerPublication.fromProducts(products.getProducts()))));
+		publications.configureEach(this::create);
+	}
+
+	/**
+	 * Checks whether a task name is one of the names that only exist once the publications have been created, so a task rule can create
+	 * them when such a task is requested directly.
+	 *
+	 * @param taskName
+	 *                The name of the requested task.
+	 * @return
+	 *         Whether creating the publications could create the task.
+	 */
+	public static boolean isPublishTaskName(String taskName) {
+		return taskName.startsWith("publish") && (taskName.endsWith("Repository") || taskName.endsWith("MavenLocal"));
+	}
+
+	/**
+	 * Checks whether any of the tasks requested for the build is a publish task, so the publications only need to be populated by builds
+	 * that publish.
+	 *
+	 * @param taskNames
+	 *                The names or paths of the requested tasks.
+	 * @return
+	 *         Whether a publish task was requested.
+	 */
+	public static boolean isPublishRequested(List<String> taskNames) {
+		for (String taskName : taskNames) {
+			if (taskName.substring(taskName.lastIndexOf(':') + 1).startsWith("publish")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Populates the publications from the products, creating their Maven publications and publish tasks. Only the first call scans the
+	 * products. This must be called while the project is configured, outside of task configuration, since it registers tasks.
+	 */
+	public void populate() {
+		// Iterating the set realizes the publications added by the provider
+		for (CombinerPublication publication : publications) {
+			project.getLogger().debug("Populated combiner publication {}", publication.getName());
+		}
+	}
+
+	/**
+	 * Gets the tasks publishing each publication to its releases repo. This is empty until the publications have been populated.
+	 *
+	 * @return
+	 *         The publish tasks.
+	 */
+	public List<TaskProvider<PublishToMavenRepository>> getPublishTasks() {
+		return new ArrayList<TaskProvider<PublishToMavenRepository>>(publishTasks.values());
+	}
+
+	/**
+	 * Gets the names of the tasks publishing each publication to Maven local. This is empty until the publications have been populated.
+	 *
+	 * @return
+	 *         The task names.
+	 */
+	public List<String> getPublishToMavenLocalTasks() {
+		List<String> tasks = new ArrayList<String>();
+		for (String publicationName : publishTasks.keySet()) {
+			tasks.add(String.format("publish%sPublicationToMavenLocal", capitalize(publicationName)));
+		}
+		return tasks;
+	}
+
+	/**
+	 * Creates a Maven repository for each releases repo used by the publications. The repositories are removed from the publishing
+	 * extension again before any publications are added, so maven-publish doesn't create a publish task for every publication and
+	 * repository pair.
+	 *
+	 * @param combinerPublications
+	 *                The publications found in the products.
+	 * @return
+	 *         The same publications.
+	 */
+	private List<CombinerPublication> createRepositories(List<CombinerPublication> combinerPublications) {
+		PublishingExtension publishingExtension = project.getExtensions().getByType(PublishingExtension.class);
+		VendordepExtension vendordepExtension = project.getExtensions().getByType(VendordepExtension.class);
+
+		for (CombinerPublication combinerPublication : combinerPublications) {
+			repositories.computeIfAbsent(combinerPublication.getReleasesRepoName(), (repoName) -> {
+				MavenArtifactRepository repository = publishingExtension.getRepositories().maven((r) -> {
+					r.setName(repoName);
+					r.setUrl(vendordepExtension.getMavenRepoUrl().map((url) -> String.format("%s/%s", url, repoName)));
+				});
+				publishingExtension.getRepositories().remove(repository);
+				return repository;
+			});
+		}
+		return combinerPublications;
+	}
+
+	/**
+	 * Creates the Maven publication of a combiner publication and the task publishing it to the repository of its releases repo.
+	 *
+	 * @param combinerPublication
+	 *                The publication added to the {@link #publications}.
+	 */
+	private void create(CombinerPublication combinerPublication) {
+		PublishingExtension publishingExtension = project.getExtensions().getByType(PublishingExtension.class);
+		String publicationName = combinerPublication.getName();
+		String repoName = combinerPublication.getReleasesRepoName();
+		MavenArtifactRepository repository = repositories.get(repoName);
+
+		MavenPublication publication = publishingExtension.getPublications().create(publicationName, MavenPublication.class);
+		publication.setArtifactId(combinerPublication.getArtifactId());
+		publication.setGroupId(combinerPublication.getGroupId());
+		publication.setVersion(combinerPublication.getVersion());
+
+		// Add the artifact files to the publication
+		for (CombinerArtifact combinerArtifact : combinerPublication.getArtifacts()) {
+			MavenArtifact artifact = publication.artifact(combinerArtifact.getFile());
+			if (!combinerArtifact.getClassifier().isEmpty()) {
+				artifact.setClassifier(combinerArtifact.getClassifier());
+			}
+		}
+
+		// Only publish the publication to its own repository
+		TaskProvider<PublishToMavenRepository> publishTask = project.getTasks().register(
+				String.format("publish%sPublicationTo%sRepository", capitalize(publicationName), capitalize(repoName)),
+				PublishToMavenRepository.class, task -> {
+					task.setPublication(publication);
+					task.setRepository(repository);
+					task.setGroup(PublishingPlugin.PUBLISH_TASK_GROUP);
+					task.setDescription(String.format("Publishes Maven publication '%s' to Maven repository '%s'.", publicationName, repoName));
+				});
+
+		TaskMetricsService.track(project, publishTask);
+
+		project.getTasks().named(String.format("publishAllPublicationsTo%sRepository", capitalize(repoName)), task -> task.dependsOn(publishTask));
+		publishTasks.put(publicationName, publishTask);
+	}
+
+	/**
+	 * Capitalizes a name the same way maven-publish does when naming its tasks.
+	 *
+	 * @param name
+	 *                The name to capitalize.
+	 * @return
+	 *         The name with its first character in upper case.
+	 */
+	private static String capitalize(String name) {
+		return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+}
@@ -0,0 +1,371 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import org.gradle.api.GradleException;
+
+import net.apollofops.first.vendortools.VendorToolsPlugin;
+
+/**
+ * The raw result of walking a products folder, before defaults are applied. Records the modification time of every directory and the size
+ * and modification time of the metadata file, so a scan can be checked against the file system without walking the folder again. Adding or
+ * removing a file changes the modification time of its directory, so only the directories need to be checked for artifacts.
+ */
+public final class FolderScan {
+	/**
+	 * The folder that was scanned.
+	 */
+	private final File folder;
+	/**
+	 * The paths of the directories in the folder, relative to the folder.
+	 */
+	private final List<String> directories;
+	/**
+	 * The modification times of the {@link #directories}.
+	 */
+	private final List<Long> directoryTimes;
+	/**
+	 * The path of the metadata file relative to the folder, or {@code null} if the folder has no metadata.
+	 */
+	private final String metadataPath;
+	/**
+	 * The size of the metadata file.
+	 */
+	private final long metadataSize;
+	/**
+	 * The modification time of the metadata file.
+	 */
+	private final long metadataTime;
+	/**
+	 * The version from the metadata file, or {@code null} if it doesn't specify one.
+	 */
+	private final String metadataVersion;
+	/**
+	 * The releases repo name from the metadata file, or {@code null} if it doesn't specify one.
+	 */
+	private final String metadataReleasesRepoName;
+	/**
+	 * The artifacts in the folder.
+	 */
+	private final List<CombinerArtifact> artifacts;
+
+	/**
+	 * Creates a new FolderScan.
+	 *
+	 * @param folder
+	 *                The folder that was scanned.
+	 * @param directories
+	 *                The paths of the directories in the folder, relative to the folder.
+	 * @param directoryTimes
+	 *                The modification times of the directories.
+	 * @param metadataPath
+	 *                The path of the metadata file relative to the folder, or {@code null} if there is none.
+	 * @param metadataSize
+	 *                The size of the metadata file.
+	 * @param metadataTime
+	 *                The modification time of the metadata file.
+	 * @param metadataVersion
+	 *                The version from the metadata file, or {@code null}.
+	 * @param metadataReleasesRepoName
+	 *                The releases repo name from the metadata file, or {@code null}.
+	 * @param artifacts
+	 *                The artifacts in the folder.
+	 */
+	private FolderScan(File folder, List<String> directories, List<Long> directoryTimes, String metadataPath, long metadataSize, long metadataTime,
+			String metadataVersion, String metadataReleasesRepoName, List<CombinerArtifact> artifacts) {
+		this.folder = folder;
+		this.directories = directories;
+		this.directoryTimes = directoryTimes;
+		this.metadataPath = metadataPath;
+		this.metadataSize = metadataSize;
+		this.metadataTime = metadataTime;
+		this.metadataVersion = metadataVersion;
+		this.metadataReleasesRepoName = metadataReleasesRepoName;
+		this.artifacts = Collections.unmodifiableList(artifacts);
+	}
+
+	/**
+	 * Walks a products folder, classifying metadata and artifact files in a single pass.
+	 *
+	 * @param folder
+	 *                The folder to scan.
+	 * @return
+	 *         The scan of the folder.
+	 */
+	public static FolderScan scan(File folder) {
+		Path root = folder.toPath();
+		FolderVisitor visitor = new FolderVisitor();
+		try {
+			Files.walkFileTree(root, visitor);
+		} catch (IOException e) {
+			throw new GradleException(String.format("Unable to scan products folder %s", folder), e);
+		}
+
+		String metadataPath = null;
+		long metadataSize = 0;
+		long metadataTime = 0;
+		String metadataVersion = null;
+		String metadataReleasesRepoName = null;
+
+		// Get the metadata for the package
+		if (visitor.metadataFile != null) {
+			File metadataFile = visitor.metadataFile.toFile();
+			metadataPath = relativePath(root, visitor.metadataFile);
+			metadataSize = metadataFile.length();
+			metadataTime = metadataFile.lastModified();
+
+			Properties metadataProperties = ProductFolder.readMetadata(metadataFile);
+			metadataVersion = metadataProperties.getProperty(VendorToolsPlugin.METADATA_VERSION_KEY);
+			metadataReleasesRepoName = metadataProperties.getProperty(VendorToolsPlugin.METADATA_RELEASES_REPO_NAME_KEY);
+		}
+
+		// Sort the artifacts so the publications don't depend on the file system's ordering
+		visitor.artifacts.sort(Comparator.comparing(CombinerArtifact::getFile));
+
+		List<String> directories = new ArrayList<String>();
+		for (Path directory : visitor.directories) {
+			directories.add(relativePath(root, directory));
+		}
+
+		return new FolderScan(folder, directories, visitor.directoryTimes, metadataPath, metadataSize, metadataTime, metadataVersion,
+				metadataReleasesRepoName, visitor.artifacts);
+	}
+
+	/**
+	 * Checks whether the folder still matches this scan, using only the modification times of its directories and the size and
+	 * modification time of its metadata file.
+	 *
+	 * @return
+	 *         {@code true} if the folder hasn't changed since it was scanned.
+	 */
+	public boolean isUpToDate() {
+		for (int i = 0; i < directories.size(); i++) {
+			if (new File(folder, directories.get(i)).lastModified() != directoryTimes.get(i)) {
+				return false;
+			}
+		}
+
+		if (metadataPath != null) {
+			File metadataFile = new File(folder, metadataPath);
+			return metadataFile.length() == metadataSize && metadataFile.lastModified() == metadataTime;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates a {@link ProductFolder} from this scan.
+	 *
+	 * @param defaultVersion
+	 *                The version to use if the metadata doesn't specify one.
+	 * @param defaultReleasesRepoName
+	 *                The repository name to use if the metadata doesn't specify one.
+	 * @return
+	 *         The products folder.
+	 */
+	public ProductFolder toProductFolder(String defaultVersion, String defaultReleasesRepoName) {
+		return new ProductFolder(folder,
+				metadataVersion != null ? metadataVersion : defaultVersion,
+				metadataReleasesRepoName != null ? metadataReleasesRepoName : defaultReleasesRepoName,
+				artifacts);
+	}
+
+	/**
+	 * Writes this scan to an index stream.
+	 *
+	 * @param output
+	 *                The stream to write to.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing.
+	 */
+	void write(DataOutputStream output) throws IOException {
+		Path root = folder.toPath();
+
+		output.writeInt(directories.size());
+		for (int i = 0; i < directories.size(); i++) {
+			output.writeUTF(directories.get(i));
+			output.writeLong(directoryTimes.get(i));
+		}
+
+		writeNullableString(output, metadataPath);
+		output.writeLong(metadataSize);
+		output.writeLong(metadataTime);
+		writeNullableString(output, metadataVersion);
+		writeNullableString(output, metadataReleasesRepoName);
+
+		output.writeInt(artifacts.size());
+		for (CombinerArtifact artifact : artifacts) {
+			output.writeUTF(relativePath(root, artifact.getFile().toPath()));
+			output.writeUTF(artifact.getGroupId());
+			output.writeUTF(artifact.getArtifactId());
+			output.writeUTF(artifact.getClassifier());
+		}
+	}
+
+	/**
+	 * Reads a scan from an index stream.
+	 *
+	 * @param input
+	 *                The stream to read from.
+	 * @param folder
+	 *                The folder the scan belongs to.
+	 * @return
+	 *         The scan that was read.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading.
+	 */
+	static FolderScan read(DataInputStream input, File folder) throws IOException {
+		int directoryCount = input.readInt();
+		List<String> directories = new ArrayList<String>(directoryCount);
+		List<Long> directoryTimes = new ArrayList<Long>(directoryCount);
+		for (int i = 0; i < directoryCount; i++) {
+			directories.add(input.readUTF());
+			directoryTimes.add(input.readLong());
+		}
+
+		String metadataPath = readNullableString(input);
+		long metadataSize = input.readLong();
+		long metadataTime = input.readLong();
+		String metadataVersion = readNullableString(input);
+		String metadataReleasesRepoName = readNullableString(input);
+
+		int artifactCount = input.readInt();
+		List<CombinerArtifact> artifacts = new ArrayList<CombinerArtifact>(artifactCount);
+		for (int i = 0; i < artifactCount; i++) {
+			File file = new File(folder, input.readUTF());
+			artifacts.add(new CombinerArtifact(file, input.readUTF(), input.readUTF(), input.readUTF()));
+		}
+
+		return new FolderScan(folder, directories, directoryTimes, metadataPath, metadataSize, metadataTime, metadataVersion,
+				metadataReleasesRepoName, artifacts);
+	}
+
+	/**
+	 * Gets a path relative to the root, using forward slashes.
+	 *
+	 * @param root
+	 *                The root path.
+	 * @param path
+	 *                The path to relativize.
+	 * @return
+	 *         The relative path.
+	 */
+	private static String relativePath(Path root, Path path) {
+		return root.relativize(path).toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Writes a string that may be {@code null}.
+	 *
+	 * @param output
+	 *                The stream to write to.
+	 * @param value
+	 *                The string to write.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing.
+	 */
+	private static void writeNullableString(DataOutputStream output, String value) throws IOException {
+		output.writeBoolean(value != null);
+		if (value != null) {
+			output.writeUTF(value);
+		}
+	}
+
+	/**
+	 * Reads a string that may be {@code null}.
+	 *
+	 * @param input
+	 *                The stream to read from.
+	 * @return
+	 *         The string that was read.
+	 * @throws IOException
+	 *                 If an IOException occurs while reading.
+	 */
+	private static String readNullableString(DataInputStream input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+
+	/**
+	 * Classifies the files in a products folder as metadata or artifacts while walking it.
+	 */
+	private static final class FolderVisitor extends SimpleFileVisitor<Path> {
+		/**
+		 * The directories visited.
+		 */
+		private final List<Path> directories = new ArrayList<Path>();
+		/**
+		 * The modification times of the {@link #directories}.
+		 */
+		private final List<Long> directoryTimes = new ArrayList<Long>();
+		/**
+		 * The shallowest metadata file found, or {@code null} if none has been found.
+		 */
+		private Path metadataFile;
+		/**
+		 * The depth of the {@link #metadataFile}.
+		 */
+		private int metadataDepth = Integer.MAX_VALUE;
+		/**
+		 * The artifacts found.
+		 */
+		private final List<CombinerArtifact> artifacts = new ArrayList<CombinerArtifact>();
+
+		/**
+		 * Records a directory and its modification time.
+		 *
+		 * @param directory
+		 *                The directory being visited.
+		 * @param attributes
+		 *                The attributes of the directory.
+		 * @return
+		 *         {@link FileVisitResult#CONTINUE}
+		 */
+		@Override
+		public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+			directories.add(directory);
+			directoryTimes.add(attributes.lastModifiedTime().toMillis());
+			return FileVisitResult.CONTINUE;
+		}
+
+		/**
+		 * Classifies a file by its name.
+		 *
+		 * @param file
+		 *                The file to classify.
+		 * @param attributes
+		 *                The attributes of the file.
+		 * @return
+		 *         {@link FileVisitResult#CONTINUE}
+		 */
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+			String name = file.getFileName().toString();
+
+			if (name.equals(CombinerProducts.METADATA_FILE_NAME)) {
+				if (file.getNameCount() < metadataDepth) {
+					metadataFile = file;
+					metadataDepth = file.getNameCount();
+				}
+			} else if (name.endsWith(".zip") || name.endsWith(".jar")) {
+				CombinerArtifact artifact = CombinerArtifact.fromFile(file.toFile());
+				if (artifact != null) {
+					artifacts.add(artifact);
+				}
+			}
+
+			return FileVisitResult.CONTINUE;
+		}
+	}
+}
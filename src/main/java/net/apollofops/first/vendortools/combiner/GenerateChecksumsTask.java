@@ -0,0 +1,322 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+import net.apollofops.first.vendortools.VendorToolsPlugin;
+
+/**
+ * Computes the Maven checksum files, and optionally detached GPG signatures, for a set of files. Each file is read once to compute every
+ * checksum, and the files are processed in parallel using the Worker API. The checksum files are written to the {@link #outputsFolder},
+ * at the path of each file relative to the {@link #baseFolder}.
+ */
+@CacheableTask
+public abstract class GenerateChecksumsTask extends DefaultTask {
+	/**
+	 * The files to generate checksums for.
+	 */
+	private final ConfigurableFileCollection inputFiles;
+	/**
+	 * The folder the {@link #inputFiles} paths are relative to. Files outside this folder are placed at the root of the {@link #outputsFolder}.
+	 */
+	private final DirectoryProperty baseFolder;
+	/**
+	 * The directory to write the checksum files to.
+	 */
+	private final DirectoryProperty outputsFolder;
+	/**
+	 * The name of the GPG key used to sign the files. If not set, the files aren't signed.
+	 */
+	private final Property<String> gpgKeyName;
+	/**
+	 * The GPG executable used to sign the files.
+	 */
+	private final Property<String> gpgExecutable;
+	/**
+	 * Worker executor used to process the files in parallel.
+	 */
+	private final WorkerExecutor workerExecutor;
+	/**
+	 * File system operations used to clear stale checksum files.
+	 */
+	private final FileSystemOperations fileSystemOperations;
+
+	/**
+	 * Creates a new GenerateChecksumsTask.
+	 *
+	 * @param objects
+	 *                ObjectFactory used to create properties.
+	 * @param workerExecutor
+	 *                WorkerExecutor used to process the files in parallel.
+	 * @param fileSystemOperations
+	 *                FileSystemOperations used to clear stale checksum files.
+	 */
+	@Inject
+	public GenerateChecksumsTask(ObjectFactory objects, WorkerExecutor workerExecutor, FileSystemOperations fileSystemOperations) {
+		this.inputFiles = objects.fileCollection();
+		this.baseFolder = objects.directoryProperty();
+		this.outputsFolder = objects.directoryProperty();
+		this.gpgKeyName = objects.property(String.class);
+		this.gpgExecutable = objects.property(String.class);
+		this.workerExecutor = workerExecutor;
+		this.fileSystemOperations = fileSystemOperations;
+
+		// Defaults
+		gpgExecutable.convention("gpg");
+	}
+
+	/**
+	 * Gets the {@link #inputFiles} for this task.
+	 *
+	 * @return
+	 *         The {@link #inputFiles} for this task.
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public ConfigurableFileCollection getInputFiles() {
+		return inputFiles;
+	}
+
+	/**
+	 * Gets the {@link #baseFolder} for this task.
+	 *
+	 * @return
+	 *         The {@link #baseFolder} for this task.
+	 */
+	@Internal
+	public DirectoryProperty getBaseFolder() {
+		return baseFolder;
+	}
+
+	/**
+	 * Gets the paths of the checksum files relative to the {@link #outputsFolder}, without their extensions. These depend on the
+	 * {@link #baseFolder}, so they are tracked as an input in its place.
+	 *
+	 * @return
+	 *         The relative paths of the checksum files.
+	 */
+	@Input
+	public List<String> getChecksumPaths() {
+		File outputs = outputsFolder.getAsFile().get();
+		File base = baseFolder.getAsFile().get();
+		return inputFiles.getFiles().stream()
+				.map((file) -> outputs.toPath().relativize(getChecksumBaseFile(outputs, base, file).toPath()).toString().replace(File.separatorChar, '/'))
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Gets the {@link #outputsFolder} for this task.
+	 *
+	 * @return
+	 *         The {@link #outputsFolder} for this task.
+	 */
+	@OutputDirectory
+	public DirectoryProperty getOutputsFolder() {
+		return outputsFolder;
+	}
+
+	/**
+	 * Gets the {@link #gpgKeyName} for this task.
+	 *
+	 * @return
+	 *         The {@link #gpgKeyName} for this task.
+	 */
+	@Input
+	@Optional
+	public Property<String> getGpgKeyName() {
+		return gpgKeyName;
+	}
+
+	/**
+	 * Gets the {@link #gpgExecutable} for this task.
+	 *
+	 * @return
+	 *         The {@link #gpgExecutable} for this task.
+	 */
+	@Input
+	public Property<String> getGpgExecutable() {
+		return gpgExecutable;
+	}
+
+	/**
+	 * Gets the file a checksum or signature file is named after, which is the path of the file relative to the {@link #baseFolder} inside
+	 * the {@link #outputsFolder}.
+	 *
+	 * @param outputsFolder
+	 *                The folder the checksum files are written to.
+	 * @param baseFolder
+	 *                The folder input paths are relative to.
+	 * @param file
+	 *                The input file.
+	 * @return
+	 *         The file the checksum files are named after.
+	 */
+	public static File getChecksumBaseFile(File outputsFolder, File baseFolder, File file) {
+		Path basePath = baseFolder.toPath().toAbsolutePath().normalize();
+		Path filePath = file.toPath().toAbsolutePath().normalize();
+		if (filePath.startsWith(basePath)) {
+			return outputsFolder.toPath().resolve(basePath.relativize(filePath)).toFile();
+		}
+		return new File(outputsFolder, file.getName());
+	}
+
+	/**
+	 * Gets the description of this task.
+	 *
+	 * @return
+	 *         The description of this task.
+	 */
+	@Override
+	public String getDescription() {
+		return "Computes the checksums and signatures of the combined artifacts.";
+	}
+
+	/**
+	 * Gets the group of this task.
+	 *
+	 * @return
+	 *         The group of this task.
+	 */
+	@Override
+	public String getGroup() {
+		return VendorToolsPlugin.BUILD_TASK_GROUP;
+	}
+
+	/**
+	 * Submits a work item for each of the {@link #inputFiles}.
+	 */
+	@TaskAction
+	public void execute() {
+		File outputs = outputsFolder.getAsFile().get();
+		File base = baseFolder.getAsFile().get();
+
+		// Remove checksums of files that are no longer inputs
+		fileSystemOperations.delete(t -> t.delete(outputs));
+
+		WorkQueue workQueue = workerExecutor.noIsolation();
+		for (File file : inputFiles.getFiles()) {
+			if (!file.isFile()) {
+				continue;
+			}
+
+			workQueue.submit(ChecksumAction.class, parameters -> {
+				parameters.getSourceFile().set(file);
+				parameters.getBaseFile().set(getChecksumBaseFile(outputs, base, file));
+				parameters.getGpgKeyName().set(gpgKeyName);
+				parameters.getGpgExecutable().set(gpgExecutable);
+			});
+		}
+	}
+
+	/**
+	 * Parameters for a {@link ChecksumAction}.
+	 */
+	public interface ChecksumParameters extends WorkParameters {
+		/**
+		 * Gets the file to hash.
+		 *
+		 * @return
+		 *         The file to hash.
+		 */
+		RegularFileProperty getSourceFile();
+
+		/**
+		 * Gets the file the checksum and signature files are named after.
+		 *
+		 * @return
+		 *         The file the checksum and signature files are named after.
+		 */
+		RegularFileProperty getBaseFile();
+
+		/**
+		 * Gets the name of the GPG key to sign with.
+		 *
+		 * @return
+		 *         The name of the GPG key, or an empty property to skip signing.
+		 */
+		Property<String> getGpgKeyName();
+
+		/**
+		 * Gets the GPG executable to sign with.
+		 *
+		 * @return
+		 *         The GPG executable.
+		 */
+		Property<String> getGpgExecutable();
+	}
+
+	/**
+	 * Computes the checksums, and optionally the signature, of a single file.
+	 */
+	public abstract static class ChecksumAction implements WorkAction<ChecksumParameters> {
+		/**
+		 * Exec operations used to run GPG.
+		 */
+		private final ExecOperations execOperations;
+
+		/**
+		 * Creates a new ChecksumAction.
+		 *
+		 * @param execOperations
+		 *                ExecOperations used to run GPG.
+		 */
+		@Inject
+		public ChecksumAction(ExecOperations execOperations) {
+			this.execOperations = execOperations;
+		}
+
+		/**
+		 * Writes the checksum files, and signs the file if a GPG key is set.
+		 */
+		@Override
+		public void execute() {
+			File sourceFile = getParameters().getSourceFile().getAsFile().get();
+			File baseFile = getParameters().getBaseFile().getAsFile().get();
+
+			try {
+				Files.createDirectories(baseFile.toPath().getParent());
+				Checksums.write(Checksums.compute(sourceFile), baseFile);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			if (getParameters().getGpgKeyName().isPresent()) {
+				execOperations.exec(spec -> {
+					spec.executable(getParameters().getGpgExecutable().get());
+					spec.args("--batch", "--yes", "--local-user", getParameters().getGpgKeyName().get(), "--armor", "--detach-sign",
+							"--output", baseFile.getPath() + ".asc", sourceFile.getPath());
+				});
+			}
+		}
+	}
+}
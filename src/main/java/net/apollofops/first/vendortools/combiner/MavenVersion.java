@@ -0,0 +1,318 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A version string ordered the same way Maven orders versions, so the {@code <latest>} and {@code <release>} of a
+ * {@code maven-metadata.xml} match what Maven resolves. The version is split into numbers and qualifiers at dots, hyphens and changes
+ * between digits and letters, and each hyphen starts a nested list. Numbers compare numerically, and the known qualifiers compare as
+ * {@code alpha < beta < milestone < rc < snapshot < (release) < sp}, with any other qualifier after them in lexical order. Trailing zeros
+ * and release qualifiers such as {@code final} are ignored, so {@code 1.0}, {@code 1.0.0} and {@code 1-final} are equal.
+ */
+public final class MavenVersion implements Comparable<MavenVersion> {
+	/**
+	 * The known qualifiers, in order. The empty qualifier is a release.
+	 */
+	private static final List<String> QUALIFIERS = List.of("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+	/**
+	 * The position of the release qualifier in {@link #QUALIFIERS}.
+	 */
+	private static final int RELEASE_INDEX = QUALIFIERS.indexOf("");
+
+	/**
+	 * The version string.
+	 */
+	private final String version;
+	/**
+	 * The parsed items of the version.
+	 */
+	private final List<Object> items;
+
+	/**
+	 * Creates a new MavenVersion.
+	 *
+	 * @param version
+	 *                The version string.
+	 */
+	public MavenVersion(String version) {
+		this.version = version;
+		this.items = parse(version.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Gets the greater of two versions.
+	 *
+	 * @param first
+	 *                The first version, or {@code null}.
+	 * @param second
+	 *                The second version.
+	 * @return
+	 *         The greater version, or {@code second} if {@code first} is {@code null} or they are equal.
+	 */
+	public static String max(String first, String second) {
+		return first == null || new MavenVersion(second).compareTo(new MavenVersion(first)) >= 0 ? second : first;
+	}
+
+	/**
+	 * Compares this version to another version.
+	 *
+	 * @param other
+	 *                The other version.
+	 * @return
+	 *         A negative number, zero or a positive number if this version is older than, equal to or newer than the other version.
+	 */
+	@Override
+	public int compareTo(MavenVersion other) {
+		return compareLists(items, other.items);
+	}
+
+	/**
+	 * Checks whether this version is equal to another object.
+	 *
+	 * @param other
+	 *                The other object.
+	 * @return
+	 *         Whether the other object is a MavenVersion that compares equal to this version.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof MavenVersion && compareTo((MavenVersion) other) == 0;
+	}
+
+	/**
+	 * Gets the hash code of this version.
+	 *
+	 * @return
+	 *         The hash code of the parsed items.
+	 */
+	@Override
+	public int hashCode() {
+		return items.hashCode();
+	}
+
+	/**
+	 * Gets the version string.
+	 *
+	 * @return
+	 *         The version string.
+	 */
+	@Override
+	public String toString() {
+		return version;
+	}
+
+	/**
+	 * Splits a version into its items. Numbers are {@link BigInteger}s, qualifiers are {@link String}s, and the part after each hyphen, or
+	 * after a change between letters and digits, is a nested {@link List}.
+	 *
+	 * @param version
+	 *                The lowercase version string.
+	 * @return
+	 *         The items of the version.
+	 */
+	private static List<Object> parse(String version) {
+		List<Object> root = new ArrayList<Object>();
+		List<List<Object>> lists = new ArrayList<List<Object>>();
+		lists.add(root);
+		List<Object> list = root;
+		boolean digits = false;
+		int start = 0;
+
+		for (int i = 0; i < version.length(); i++) {
+			char c = version.charAt(i);
+			if (c == '.' || c == '-') {
+				list.add(i == start ? BigInteger.ZERO : item(version.substring(start, i), digits));
+				start = i + 1;
+				if (c == '-') {
+					list = nested(list, lists);
+				}
+			} else if (Character.isDigit(c)) {
+				if (!digits && i > start) {
+					list.add(item(version.substring(start, i), false, true));
+					start = i;
+					list = nested(list, lists);
+				}
+				digits = true;
+			} else {
+				if (digits && i > start) {
+					list.add(item(version.substring(start, i), true));
+					start = i;
+					list = nested(list, lists);
+				}
+				digits = false;
+			}
+		}
+		if (version.length() > start) {
+			list.add(item(version.substring(start), digits));
+		}
+
+		// Drop the trailing zeros and release qualifiers, innermost list first
+		for (int i = lists.size() - 1; i >= 0; i--) {
+			normalize(lists.get(i));
+		}
+		return root;
+	}
+
+	/**
+	 * Starts a nested list.
+	 *
+	 * @param list
+	 *                The list the nested list is added to.
+	 * @param lists
+	 *                Every list of the version, which the nested list is added to.
+	 * @return
+	 *         The nested list.
+	 */
+	private static List<Object> nested(List<Object> list, List<List<Object>> lists) {
+		List<Object> nested = new ArrayList<Object>();
+		list.add(nested);
+		lists.add(nested);
+		return nested;
+	}
+
+	/**
+	 * Parses an item that isn't directly followed by a digit.
+	 *
+	 * @param item
+	 *                The item string.
+	 * @param digits
+	 *                Whether the item is a number.
+	 * @return
+	 *         The parsed item.
+	 */
+	private static Object item(String item, boolean digits) {
+		return item(item, digits, false);
+	}
+
+	/**
+	 * Parses an item. A single letter directly followed by a digit is short for a qualifier, as in {@code 1.0a1}.
+	 *
+	 * @param item
+	 *                The item string.
+	 * @param digits
+	 *                Whether the item is a number.
+	 * @param followedByDigit
+	 *                Whether the item is directly followed by a digit.
+	 * @return
+	 *         The parsed item.
+	 */
+	private static Object item(String item, boolean digits, boolean followedByDigit) {
+		if (digits) {
+			return new BigInteger(item);
+		}
+		if (followedByDigit && item.length() == 1) {
+			switch (item) {
+				case "a":
+					return "alpha";
+				case "b":
+					return "beta";
+				case "m":
+					return "milestone";
+				default:
+					break;
+			}
+		}
+		switch (item) {
+			case "ga":
+			case "final":
+			case "release":
+				return "";
+			case "cr":
+				return "rc";
+			default:
+				return item;
+		}
+	}
+
+	/**
+	 * Removes the trailing items of a list that are equal to nothing, stopping at the first other item that isn't a list.
+	 *
+	 * @param list
+	 *                The list to normalize.
+	 */
+	private static void normalize(List<Object> list) {
+		for (int i = list.size() - 1; i >= 0; i--) {
+			Object item = list.get(i);
+			if (compare(item, null) == 0) {
+				list.remove(i);
+			} else if (!(item instanceof List)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Compares two lists of items, padding the shorter one with nothing.
+	 *
+	 * @param first
+	 *                The first list.
+	 * @param second
+	 *                The second list.
+	 * @return
+	 *         The result of the comparison.
+	 */
+	private static int compareLists(List<Object> first, List<Object> second) {
+		for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+			Object firstItem = i < first.size() ? first.get(i) : null;
+			Object secondItem = i < second.size() ? second.get(i) : null;
+			int result = firstItem == null ? -compare(secondItem, null) : compare(firstItem, secondItem);
+			if (result != 0) {
+				return result;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Compares two items. Numbers are newer than lists, which are newer than qualifiers.
+	 *
+	 * @param first
+	 *                The first item.
+	 * @param second
+	 *                The second item, or {@code null} for nothing.
+	 * @return
+	 *         The result of the comparison.
+	 */
+	@SuppressWarnings("unchecked")
+	private static int compare(Object first, Object second) {
+		if (first instanceof BigInteger) {
+			if (second == null) {
+				return ((BigInteger) first).signum();
+			}
+			return second instanceof BigInteger ? ((BigInteger) first).compareTo((BigInteger) second) : 1;
+		}
+		if (first instanceof String) {
+			if (second == null) {
+				return qualifierKey((String) first).compareTo(String.valueOf(RELEASE_INDEX));
+			}
+			return second instanceof String ? qualifierKey((String) first).compareTo(qualifierKey((String) second)) : -1;
+		}
+		List<Object> list = (List<Object>) first;
+		if (second == null) {
+			return list.isEmpty() ? 0 : compare(list.get(0), null);
+		}
+		if (second instanceof BigInteger) {
+			return -1;
+		}
+		if (second instanceof String) {
+			return 1;
+		}
+		return compareLists(list, (List<Object>) second);
+	}
+
+	/**
+	 * Gets the key a qualifier is ordered by. Known qualifiers are keyed by their position, and other qualifiers come after them.
+	 *
+	 * @param qualifier
+	 *                The qualifier.
+	 * @return
+	 *         The key of the qualifier.
+	 */
+	private static String qualifierKey(String qualifier) {
+		int index = QUALIFIERS.indexOf(qualifier);
+		return index >= 0 ? String.valueOf(index) : String.format("%d-%s", QUALIFIERS.size(), qualifier);
+	}
+}
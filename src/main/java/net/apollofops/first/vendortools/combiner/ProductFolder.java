@@ -0,0 +1,187 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.gradle.api.GradleException;
+
+import net.apollofops.first.vendortools.VendorToolsPlugin;
+
+/**
+ * A folder of Vendordep build outputs in the combiner's products folder, along with its metadata and artifacts. The outputs can also be in
+ * a product bundle zip, in which case the {@link #folder} is the bundle.
+ */
+public final class ProductFolder {
+	/**
+	 * The products folder or bundle zip this was read from.
+	 */
+	private final File folder;
+	/**
+	 * The version to publish the artifacts as.
+	 */
+	private final String version;
+	/**
+	 * The name of the repository to publish the artifacts to.
+	 */
+	private final String releasesRepoName;
+	/**
+	 * The artifacts in this folder.
+	 */
+	private final List<CombinerArtifact> artifacts;
+
+	/**
+	 * Creates a new ProductFolder.
+	 *
+	 * @param folder
+	 *                The products folder this was read from.
+	 * @param version
+	 *                The version to publish the artifacts as.
+	 * @param releasesRepoName
+	 *                The name of the repository to publish the artifacts to.
+	 * @param artifacts
+	 *                The artifacts in this folder.
+	 */
+	public ProductFolder(File folder, String version, String releasesRepoName, List<CombinerArtifact> artifacts) {
+		this.folder = folder;
+		this.version = version;
+		this.releasesRepoName = releasesRepoName;
+		this.artifacts = Collections.unmodifiableList(artifacts);
+	}
+
+	/**
+	 * Reads a products folder, finding its metadata and artifact files.
+	 *
+	 * @param folder
+	 *                The folder to read.
+	 * @param defaultVersion
+	 *                The version to use if the metadata doesn't specify one.
+	 * @param defaultReleasesRepoName
+	 *                The repository name to use if the metadata doesn't specify one.
+	 * @return
+	 *         The products folder.
+	 */
+	public static ProductFolder read(File folder, String defaultVersion, String defaultReleasesRepoName) {
+		return FolderScan.scan(folder).toProductFolder(defaultVersion, defaultReleasesRepoName);
+	}
+
+	/**
+	 * Reads a product bundle zip through a zip file system, finding its metadata and artifact entries without extracting them. As with
+	 * folders, the metadata file closest to the root of the bundle is used.
+	 *
+	 * @param bundle
+	 *                The bundle zip to read.
+	 * @param defaultVersion
+	 *                The version to use if the metadata doesn't specify one.
+	 * @param defaultReleasesRepoName
+	 *                The repository name to use if the metadata doesn't specify one.
+	 * @return
+	 *         The product, with an artifact for each encoded artifact entry.
+	 */
+	public static ProductFolder readBundle(File bundle, String defaultVersion, String defaultReleasesRepoName) {
+		try (FileSystem zip = FileSystems.newFileSystem(bundle.toPath(), (ClassLoader) null); Stream<Path> entries = Files.walk(zip.getPath("/"))) {
+			Path metadataEntry = null;
+			List<CombinerArtifact> artifacts = new ArrayList<CombinerArtifact>();
+
+			for (Path entry : (Iterable<Path>) entries.filter(Files::isRegularFile)::iterator) {
+				String entryName = entry.toString().substring(1);
+				if (entry.getFileName().toString().equals(CombinerProducts.METADATA_FILE_NAME)) {
+					if (metadataEntry == null || entry.getNameCount() < metadataEntry.getNameCount()) {
+						metadataEntry = entry;
+					}
+					continue;
+				}
+
+				CombinerArtifact artifact = CombinerArtifact.fromBundleEntry(bundle, entryName);
+				if (artifact != null) {
+					artifacts.add(artifact);
+				}
+			}
+			artifacts.sort(Comparator.comparing(CombinerArtifact::getEntryName));
+
+			String version = defaultVersion;
+			String releasesRepoName = defaultReleasesRepoName;
+			if (metadataEntry != null) {
+				Properties metadataProperties = new Properties();
+				try (InputStream stream = Files.newInputStream(metadataEntry)) {
+					metadataProperties.load(stream);
+				}
+				version = metadataProperties.getProperty(VendorToolsPlugin.METADATA_VERSION_KEY, defaultVersion);
+				releasesRepoName = metadataProperties.getProperty(VendorToolsPlugin.METADATA_RELEASES_REPO_NAME_KEY, defaultReleasesRepoName);
+			}
+
+			return new ProductFolder(bundle, version, releasesRepoName, artifacts);
+		} catch (IOException e) {
+			throw new GradleException(String.format("Unable to read product bundle %s", bundle), e);
+		}
+	}
+
+	/**
+	 * Reads a metadata properties file.
+	 *
+	 * @param metadataFile
+	 *                The file to read.
+	 * @return
+	 *         The properties in the file.
+	 */
+	static Properties readMetadata(File metadataFile) {
+		Properties metadataProperties = new Properties();
+		try (InputStream stream = new FileInputStream(metadataFile)) {
+			metadataProperties.load(stream);
+		} catch (IOException e) {
+			throw new GradleException(String.format("Unable to read metadata file %s", metadataFile), e);
+		}
+		return metadataProperties;
+	}
+
+	/**
+	 * Gets the {@link #folder}.
+	 *
+	 * @return
+	 *         The {@link #folder} or bundle zip this was read from.
+	 */
+	public File getFolder() {
+		return folder;
+	}
+
+	/**
+	 * Gets the {@link #version}.
+	 *
+	 * @return
+	 *         The {@link #version} of the artifacts.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the {@link #releasesRepoName}.
+	 *
+	 * @return
+	 *         The {@link #releasesRepoName} of the artifacts.
+	 */
+	public String getReleasesRepoName() {
+		return releasesRepoName;
+	}
+
+	/**
+	 * Gets the {@link #artifacts}.
+	 *
+	 * @return
+	 *         The {@link #artifacts} in this folder.
+	 */
+	public List<CombinerArtifact> getArtifacts() {
+		return artifacts;
+	}
+}
@@ -0,0 +1,146 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An on-disk index of {@link FolderScan folder scans}, keyed by product folder name. Lets the combiner skip walking product folders that
+ * haven't changed since the last build. The index is versioned, and an index that can't be read is discarded.
+ */
+public final class ProductIndex {
+	/**
+	 * The magic number at the start of an index file.
+	 */
+	private static final int MAGIC = 0x56544349;
+	/**
+	 * The version of the index format. Increment this when the format changes.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The index file.
+	 */
+	private final File indexFile;
+	/**
+	 * The scans in the index, keyed by product folder name.
+	 */
+	private final Map<String, FolderScan> scans;
+
+	/**
+	 * Creates a new ProductIndex.
+	 *
+	 * @param indexFile
+	 *                The index file.
+	 * @param scans
+	 *                The scans in the index, keyed by product folder name.
+	 */
+	private ProductIndex(File indexFile, Map<String, FolderScan> scans) {
+		this.indexFile = indexFile;
+		this.scans = scans;
+	}
+
+	/**
+	 * Loads an index. If the index doesn't exist, is from a different format version, or is corrupt, an empty index is returned.
+	 *
+	 * @param indexFile
+	 *                The index file to load.
+	 * @param productsFolder
+	 *                The folder containing the product folders.
+	 * @return
+	 *         The loaded index.
+	 */
+	public static ProductIndex load(File indexFile, File productsFolder) {
+		Map<String, FolderScan> scans = new HashMap<String, FolderScan>();
+
+		if (indexFile.isFile()) {
+			try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(indexFile.toPath()))))) {
+				if (input.readInt() == MAGIC && input.readInt() == FORMAT_VERSION) {
+					int count = input.readInt();
+					for (int i = 0; i < count; i++) {
+						String name = input.readUTF();
+						scans.put(name, FolderScan.read(input, new File(productsFolder, name)));
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				// A corrupt index is discarded and rebuilt
+				scans.clear();
+			}
+		}
+
+		return new ProductIndex(indexFile, scans);
+	}
+
+	/**
+	 * Gets the scan for a product folder if it is still up to date.
+	 *
+	 * @param folder
+	 *                The product folder.
+	 * @return
+	 *         The scan, or {@code null} if there is no scan for the folder or the folder has changed.
+	 */
+	public FolderScan get(File folder) {
+		FolderScan scan = scans.get(folder.getName());
+		return scan != null && scan.isUpToDate() ? scan : null;
+	}
+
+	/**
+	 * Checks whether this index already contains exactly the given scans, in which case it doesn't need to be written again.
+	 *
+	 * @param currentScans
+	 *                The current scans, keyed by product folder name.
+	 * @return
+	 *         {@code true} if every current scan came from this index and no folders were removed.
+	 */
+	public boolean matches(Map<String, FolderScan> currentScans) {
+		if (!scans.keySet().equals(currentScans.keySet())) {
+			return false;
+		}
+		for (Map.Entry<String, FolderScan> entry : currentScans.entrySet()) {
+			if (scans.get(entry.getKey()) != entry.getValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes a new index containing only the given scans, replacing the index file atomically.
+	 *
+	 * @param currentScans
+	 *                The scans to write, keyed by product folder name.
+	 * @throws IOException
+	 *                 If an IOException occurs while writing the index.
+	 */
+	public void save(Map<String, FolderScan> currentScans) throws IOException {
+		Path indexPath = indexFile.toPath();
+		Files.createDirectories(indexPath.getParent());
+		Path tempPath = Files.createTempFile(indexPath.getParent(), indexFile.getName(), ".tmp");
+
+		try {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tempPath))))) {
+				output.writeInt(MAGIC);
+				output.writeInt(FORMAT_VERSION);
+				output.writeInt(currentScans.size());
+				for (Map.Entry<String, FolderScan> entry : new TreeMap<String, FolderScan>(currentScans).entrySet()) {
+					output.writeUTF(entry.getKey());
+					entry.getValue().write(output);
+				}
+			}
+			Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+}
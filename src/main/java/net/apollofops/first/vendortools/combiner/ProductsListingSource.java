@@ -0,0 +1,48 @@
+package net.apollofops.first.vendortools.combiner;
+
+import java.util.List;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+/**
+ * {@link ValueSource} listing the combiner's products with {@link CombinerProducts#list(java.io.File, java.io.File)}. Reading the listing
+ * while the publications are created makes it a configuration cache input, so a cached task graph is only reused while the products it
+ * was created from are unchanged. The listing reads the {@link ProductIndex}, so checking it doesn't walk unchanged product folders, but
+ * never writes it, since a value source must not have side effects. The index is written by {@link CombineToRepositoryTask}.
+ */
+public abstract class ProductsListingSource implements ValueSource<List<String>, ProductsListingSource.Params> {
+	/**
+	 * The parameters of the value source.
+	 */
+	public interface Params extends ValueSourceParameters {
+		/**
+		 * Gets the folder containing the product folders.
+		 *
+		 * @return
+		 *         The products folder.
+		 */
+		DirectoryProperty getProductsFolder();
+
+		/**
+		 * Gets the {@link ProductIndex} file.
+		 *
+		 * @return
+		 *         The index file.
+		 */
+		RegularFileProperty getIndexFile();
+	}
+
+	/**
+	 * Lists the products.
+	 *
+	 * @return
+	 *         The listing of the products.
+	 */
+	@Override
+	public List<String> obtain() {
+		return CombinerProducts.list(getParameters().getProductsFolder().get().getAsFile(), getParameters().getIndexFile().get().getAsFile());
+	}
+}
@@ -1,27 +1,17 @@
 package net.apollofops.first.vendortools.combiner;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Properties;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
-import org.gradle.api.file.ConfigurableFileCollection;
-import org.gradle.api.file.Directory;
-import org.gradle.api.model.ObjectFactory;
-import org.gradle.api.provider.Property;
-import org.gradle.api.publish.PublishingExtension;
-import org.gradle.api.publish.maven.MavenArtifact;
-import org.gradle.api.publish.maven.MavenPublication;
-import org.gradle.api.publish.maven.tasks.PublishToMavenRepository;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
+import org.gradle.api.publish.plugins.PublishingPlugin;
+import org.gradle.api.tasks.TaskProvider;
 
-import groovy.ant.FileNameFinder;
-import groovy.lang.Closure;
+import net.apollofops.first.vendortools.OutputAggregationService;
+import net.apollofops.first.vendortools.TaskMetricsService;
 import net.apollofops.first.vendortools.VendorToolsPlugin;
 import net.apollofops.first.vendortools.VendordepExtension;
 
@@ -38,118 +28,85 @@ public class VendorToolsCombinerPlugin implements Plugin<Project> {
 	 */
 	@Override
 	public void apply(Project project) {
-		// Object factory
-		ObjectFactory objects = project.getObjects();
+		// Main plugin
+		project.getPluginManager().apply(VendorToolsPlugin.class);
 
 		// Extension dependencies
-		PublishingExtension publishingExtension = project.getExtensions().getByType(PublishingExtension.class);
 		VendordepExtension vendordepExtension = project.getExtensions().getByType(VendordepExtension.class);
 
 		// Project info
-		Directory buildDir = project.getLayout().getBuildDirectory().get();
-		File productsFolder = project.file(String.format("%s/products", buildDir));
-
-		// Find the artifact files
-		FileNameFinder fileFinder = new FileNameFinder();
-
-		List<File> outputsFolders = new ArrayList<File>();
-		for (File file : project.file(productsFolder).listFiles()) {
-			if (file.isDirectory()) {
-				outputsFolders.add(file);
+		File productsFolder = project.getLayout().getBuildDirectory().dir("products").get().getAsFile();
+		File indexFile = project.getLayout().getBuildDirectory().file("vendortools/combiner-index.bin").get().getAsFile();
+
+		// Publications and their publish tasks are created once the project has been evaluated, when a publish task was requested, or
+		// when a routed publish task is looked up by name, so builds that don't publish don't scan the products folder. The listing only
+		// reads the index, which is written by combineToRepository, since the index itself changing would invalidate the configuration
+		// cache.
+		CombinerProducts combinerProducts = new CombinerProducts(productsFolder, indexFile, false,
+				vendordepExtension.getPublishVersion(),
+				vendordepExtension.getReleasesRepoName());
+		Provider<List<String>> productsListing = project.getProviders().of(ProductsListingSource.class, spec -> {
+			spec.getParameters().getProductsFolder().set(productsFolder);
+			spec.getParameters().getIndexFile().set(indexFile);
+		});
+		CombinerPublishTasks publishTasks = new CombinerPublishTasks(project, combinerProducts, productsListing);
+		project.getTasks().named(PublishingPlugin.PUBLISH_LIFECYCLE_TASK_NAME,
+				task -> task.dependsOn(project.provider(publishTasks::getPublishTasks)));
+		project.getTasks().named(MavenPublishPlugin.PUBLISH_LOCAL_LIFECYCLE_TASK_NAME,
+				task -> task.dependsOn(project.provider(publishTasks::getPublishToMavenLocalTasks)));
+		project.getTasks().addRule("Pattern: publish<Publication>PublicationTo<Repository>Repository: Publishes a combined publication.", (taskName) -> {
+			if (CombinerPublishTasks.isPublishTaskName(taskName)) {
+				publishTasks.populate();
 			}
-		}
-
-		outputsFolders.forEach((folder) -> {
-			// Get artifact files
-			ConfigurableFileCollection zipFiles = project
-					.files(fileFinder.getFileNames(folder.getAbsolutePath(), "**/*.zip"));
-			ConfigurableFileCollection jarFiles = project
-					.files(fileFinder.getFileNames(folder.getAbsolutePath(), "**/*.jar"));
-
-			ConfigurableFileCollection allFiles = project.files(zipFiles, jarFiles);
-
-			// Metadata
-			Property<String> version = objects.property(String.class);
-			version.set((String) project.getVersion());
-			Property<String> repoName = objects.property(String.class);
-
-			// Get the metadata for the package
-			File metadataFile = project.file(fileFinder.getFileNames(folder.getAbsolutePath(), "**/metadata.properties")
-					.get(0));
-			Properties metadataProperties = new Properties();
-			if (metadataFile.exists()) {
-				try {
-					metadataProperties.load(new FileInputStream(metadataFile));
-					version.set((String) metadataProperties.get(VendorToolsPlugin.METADATA_VERSION_KEY));
-					repoName.set((String) metadataProperties.get(VendorToolsPlugin.METADATA_RELEASES_REPO_NAME_KEY));
-				} catch (Exception e) {
-					System.err.println(e.getStackTrace());
-				}
+		});
+		project.afterEvaluate((p) -> {
+			if (CombinerPublishTasks.isPublishRequested(project.getGradle().getStartParameter().getTaskNames())) {
+				publishTasks.populate();
 			}
+		});
 
-			String regex = "([_M_]*)_GROUP_([^\\.]+)_ID_([^\\.]+)_CLS([^\\.]*).";
-			Pattern pattern = Pattern.compile(regex, Pattern.MULTILINE);
-
-			// List of publications
-			List<MavenPublication> publications = new ArrayList<MavenPublication>();
-
-			// Add artifact files to the publication
-			for (File file : allFiles) {
-				Matcher matcher = pattern.matcher(file.getName());
-
-				if (!matcher.find()) {
-					continue;
-				}
-
-				String groupId = matcher.group(2);
-				String artifactId = matcher.group(3);
-				String classifier = matcher.group(4);
-
-				String publicationName = String.format("%s%s", groupId, artifactId);
-
-				// Get the publication by name
-				MavenPublication publication = publishingExtension.getPublications()
-						.withType(MavenPublication.class)
-						.findByName(publicationName);
-
-				// If the publication doesn't exist, create one and set it up
-				if (publication == null) {
-					publication = publishingExtension.getPublications()
-							.create(publicationName, MavenPublication.class);
-					publication.setArtifactId(artifactId);
-					publication.setGroupId(groupId.replace("_", "."));
-					publication.setVersion(version.get());
-					publications.add(publication);
-				}
-
-				// Add the artifact to the publication
-				MavenArtifact artifact = publication.artifact(file);
-				if (!classifier.isEmpty()) {
-					artifact.setClassifier(classifier.substring(1));
-				}
-			}
+		// Checksums and signatures for the combined artifacts
+		TaskProvider<GenerateChecksumsTask> checksumsTask = project.getTasks().register("combinerChecksums", GenerateChecksumsTask.class, task -> {
+			task.getInputFiles().from(project.fileTree(productsFolder, (tree) -> tree.include("*/**/*_GROUP_*_ID_*_CLS*.zip", "*/**/*_GROUP_*_ID_*_CLS*.jar")));
+			task.getBaseFolder().set(project.getLayout().getBuildDirectory());
+			task.getOutputsFolder().set(project.getLayout().getBuildDirectory().dir("checksums"));
+			task.getGpgKeyName().set(project.getProviders().gradleProperty("signing.gnupg.keyName"));
+			task.getGpgExecutable().set(project.getProviders().gradleProperty("signing.gnupg.executable").orElse("gpg"));
+			task.dependsOn(aggregateTasks(project, vendordepExtension));
+		});
 
-			// Create a Maven repository for this artifact
-			MavenArtifactRepository artifactRepository = publishingExtension.getRepositories()
-					.maven((repository) -> {
-						repository.setName(repoName.get());
-						repository.setUrl(repoName.zip(vendordepExtension.getMavenRepoUrl(), (name, url) -> String.format("%s/%s", url, name)));
-					});
+		// Direct writer for local file repositories
+		TaskProvider<CombineToRepositoryTask> combineToRepositoryTask = project.getTasks().register("combineToRepository", CombineToRepositoryTask.class, task -> {
+			task.getProductsFolder().set(productsFolder);
+			task.getIndexFile().set(indexFile);
+			task.getDefaultVersion().set(vendordepExtension.getPublishVersion());
+			task.getDefaultReleasesRepoName().set(vendordepExtension.getReleasesRepoName());
+			task.getRepositoriesFolder().set(vendordepExtension.getMavenRepoFolder());
+			task.getChecksumsFolder().set(checksumsTask.flatMap(GenerateChecksumsTask::getOutputsFolder));
+			task.getChecksumsBaseFolder().set(project.getLayout().getBuildDirectory());
+			task.getGpgKeyName().set(checksumsTask.flatMap(GenerateChecksumsTask::getGpgKeyName));
+			task.getGpgExecutable().set(checksumsTask.flatMap(GenerateChecksumsTask::getGpgExecutable));
+			task.getIdempotent().set(vendordepExtension.getIdempotentPublish());
+			task.dependsOn(aggregateTasks(project, vendordepExtension));
+		});
 
-			// Only publish artifacts to their respective repositories
-			project.afterEvaluate((ae) -> {
-				ae.getTasks().withType(PublishToMavenRepository.class).configureEach((task) -> {
-					Closure<Boolean> repositoryMatch = new Closure<Boolean>(this) {
-						@Override
-						public Boolean call(Object arguments) {
-							// Return true if this task isn't relevant to this publication or if it is going to the correct repository
-							return !publications.contains(task.getPublication()) || task.getRepository() == artifactRepository;
-						}
-					};
+		// Task metrics
+		TaskMetricsService.track(project, checksumsTask, combineToRepositoryTask);
+	}
 
-					task.onlyIf(repositoryMatch);
-				});
-			});
-		});
+	/**
+	 * Gets the tasks aggregating the outputs of every project of the build into the products folder, if outputs are aggregated. The tasks
+	 * are found by the paths the projects {@link OutputAggregationService#addAggregateTask registered}.
+	 *
+	 * @param project
+	 *                The combiner project.
+	 * @param vendordepExtension
+	 *                The extension of the combiner project.
+	 * @return
+	 *         A provider of the aggregation task paths.
+	 */
+	private static Provider<List<String>> aggregateTasks(Project project, VendordepExtension vendordepExtension) {
+		Provider<List<String>> aggregateTaskPaths = OutputAggregationService.getAggregateTaskPaths(project);
+		return project.provider(() -> vendordepExtension.getAggregateOutputs().get() ? aggregateTaskPaths.get() : List.of());
 	}
 }
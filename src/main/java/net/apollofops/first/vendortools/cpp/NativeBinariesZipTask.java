@@ -0,0 +1,56 @@
+package net.apollofops.first.vendortools.cpp;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.workers.WorkerExecutor;
+
+import net.apollofops.first.vendortools.ParallelZipTask;
+
+/**
+ * {@link ParallelZipTask} that archives the native binaries of one platform and link type. When there are no binaries, the task is
+ * skipped and Gradle deletes the archive written by an earlier build, so a platform that is no longer built doesn't leave a stale archive
+ * in the outputs.
+ */
+@CacheableTask
+public abstract class NativeBinariesZipTask extends ParallelZipTask {
+	/**
+	 * The native binaries added to the archive.
+	 */
+	private final ConfigurableFileCollection binaries;
+
+	/**
+	 * Creates a new NativeBinariesZipTask.
+	 *
+	 * @param objects
+	 *                ObjectFactory used to create properties.
+	 * @param workerExecutor
+	 *                WorkerExecutor used to write the archive.
+	 */
+	@Inject
+	public NativeBinariesZipTask(ObjectFactory objects, WorkerExecutor workerExecutor) {
+		super(objects, workerExecutor);
+		this.binaries = objects.fileCollection();
+	}
+
+	/**
+	 * Gets the {@link #binaries} for this task.
+	 *
+	 * @return
+	 *         The {@link #binaries} for this task.
+	 */
+	@InputFiles
+	@SkipWhenEmpty
+	@IgnoreEmptyDirectories
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public ConfigurableFileCollection getBinaries() {
+		return binaries;
+	}
+}
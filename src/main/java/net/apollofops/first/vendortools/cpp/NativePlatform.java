@@ -0,0 +1,99 @@
+package net.apollofops.first.vendortools.cpp;
+
+/**
+ * The platforms native binaries are packaged for, using the WPILib platform names.
+ */
+public enum NativePlatform {
+	/** The roboRIO. */
+	LINUX_ATHENA("linuxathena", "LinuxAthena", "linux", "athena"),
+	/** 32 bit ARM Linux. */
+	LINUX_ARM32("linuxarm32", "LinuxArm32", "linux", "arm32"),
+	/** 64 bit ARM Linux. */
+	LINUX_ARM64("linuxarm64", "LinuxArm64", "linux", "arm64"),
+	/** 64 bit x86 Linux. */
+	LINUX_X86_64("linuxx86-64", "LinuxX8664", "linux", "x86-64"),
+	/** 64 bit x86 Windows. */
+	WINDOWS_X86_64("windowsx86-64", "WindowsX8664", "windows", "x86-64"),
+	/** Universal macOS. */
+	OSX_UNIVERSAL("osxuniversal", "OsxUniversal", "osx", "universal");
+
+	/**
+	 * The platform name, used as the archive classifier.
+	 */
+	private final String platformName;
+	/**
+	 * The platform name as used in task names.
+	 */
+	private final String taskName;
+	/**
+	 * The operating system folder inside the archive.
+	 */
+	private final String os;
+	/**
+	 * The architecture folder inside the archive.
+	 */
+	private final String arch;
+
+	/**
+	 * Creates a new NativePlatform.
+	 *
+	 * @param platformName
+	 *                The platform name, used as the archive classifier.
+	 * @param taskName
+	 *                The platform name as used in task names.
+	 * @param os
+	 *                The operating system folder inside the archive.
+	 * @param arch
+	 *                The architecture folder inside the archive.
+	 */
+	NativePlatform(String platformName, String taskName, String os, String arch) {
+		this.platformName = platformName;
+		this.taskName = taskName;
+		this.os = os;
+		this.arch = arch;
+	}
+
+	/**
+	 * Gets the {@link #platformName}.
+	 *
+	 * @return
+	 *         The {@link #platformName} of this platform.
+	 */
+	public String getPlatformName() {
+		return platformName;
+	}
+
+	/**
+	 * Gets the {@link #taskName}.
+	 *
+	 * @return
+	 *         The {@link #taskName} of this platform.
+	 */
+	public String getTaskName() {
+		return taskName;
+	}
+
+	/**
+	 * Gets the archive classifier for a link type. Shared libraries use the platform name, and static libraries add {@code static} to it.
+	 *
+	 * @param linkType
+	 *                The link type, {@code shared} or {@code static}.
+	 * @return
+	 *         The archive classifier.
+	 */
+	public String getClassifier(String linkType) {
+		return linkType.equals("static") ? platformName + "static" : platformName;
+	}
+
+	/**
+	 * Gets the folder inside the archive the binaries for a link type are placed in.
+	 *
+	 * @param linkType
+	 *                The link type, {@code shared} or {@code static}.
+	 * @return
+	 *         The folder inside the archive.
+	 */
+	public String getArchiveFolder(String linkType) {
+		return String.format("%s/%s/%s", os, arch, linkType);
+	}
+}
@@ -1,15 +1,19 @@
 package net.apollofops.first.vendortools.cpp;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
 import org.gradle.api.file.Directory;
-import org.gradle.api.plugins.ExtraPropertiesExtension;
-import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
 
 import net.apollofops.first.vendortools.CopyAllOutputsTask;
+import net.apollofops.first.vendortools.ParallelZipTask;
+import net.apollofops.first.vendortools.TaskMetricsService;
 import net.apollofops.first.vendortools.VendorToolsPlugin;
 import net.apollofops.first.vendortools.VendordepExtension;
 
@@ -25,68 +29,100 @@ public class VendorToolsCppPlugin implements Plugin<Project> {
 	 */
 	@Override
 	public void apply(Project project) {
-		// Main plugin extension
+		// Main plugin and extension
+		project.getPluginManager().apply(VendorToolsPlugin.class);
 		VendordepExtension vendordepExtension = project.getExtensions().getByType(VendordepExtension.class);
 
-		// Extension dependencies
-		ExtraPropertiesExtension extraPropertiesExtension = project.getExtensions().getByType(ExtraPropertiesExtension.class);
-
-		// Task dependencies
-		Task buildTask = project.getTasks().getByName("build");
-		CopyAllOutputsTask copyAllOutputsTask = project.getTasks().withType(CopyAllOutputsTask.class).getByName("copyAllOutputs");
-
-		File licenseFile = project.file(extraPropertiesExtension.get("licenseFile"));
+		// The license file is only read when the archives are built, so it can be set after the plugin is applied
+		Provider<RegularFile> licenseFile = vendordepExtension.getLicenseFile();
 
 		Directory buildDir = project.getLayout().getBuildDirectory().get();
 		File outputsFolder = project.file(String.format("%s/outputs", buildDir));
 
+		// The sources archive is skipped in dev mode
+		Provider<Boolean> devMode = vendordepExtension.getDevMode();
+
 		// C++ tasks
 		// TODO: Move source configuration to the extension
-		Zip cppHeadersZip = project.getTasks().register("cppHeadersZip", Zip.class, task -> {
+		TaskProvider<ParallelZipTask> cppHeadersZip = project.getTasks().register("cppHeadersZip", ParallelZipTask.class, task -> {
 			task.setDescription("Assembles a Zip archive containing the C++ headers.");
 			task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
 
-			task.getArchiveBaseName().set(vendordepExtension.getBaseName("cpp"));
-			task.getArchiveClassifier().set("headers");
-			task.getArchiveVersion().set("");
-			task.getDestinationDirectory().set(outputsFolder);
+			task.getArchiveFile().set(project.getLayout().file(vendordepExtension.getBaseName("cpp").map((baseName) -> new File(outputsFolder, baseName + "-headers.zip"))));
+			task.compressionFrom(vendordepExtension);
+			task.getReproducible().set(vendordepExtension.getReproducibleArchives());
 			task.from(licenseFile);
 			task.from("src/main/native/include");
-			task.into("/");
-		}).get();
+		});
 
-		Zip cppSourceZip = project.getTasks().register("cppSourceZip", Zip.class, task -> {
+		TaskProvider<ParallelZipTask> cppSourceZip = project.getTasks().register("cppSourceZip", ParallelZipTask.class, task -> {
 			task.setDescription("Assembles a Zip archive containing the C++ source.");
 			task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
+			task.onlyIf("dev mode is off", (t) -> !devMode.get());
 
-			task.getArchiveBaseName().set(vendordepExtension.getBaseName("cpp"));
-			task.getArchiveClassifier().set("sources");
-			task.getArchiveVersion().set("");
-			task.getDestinationDirectory().set(outputsFolder);
+			task.getArchiveFile().set(project.getLayout().file(vendordepExtension.getBaseName("cpp").map((baseName) -> new File(outputsFolder, baseName + "-sources.zip"))));
+			task.compressionFrom(vendordepExtension);
+			task.getReproducible().set(vendordepExtension.getReproducibleArchives());
 			task.from(licenseFile);
 			task.from("src/main/native/cpp");
-			task.into("/");
-		}).get();
+		});
 
-		Zip cppDriverHeadersZip = project.getTasks().register("cppDriverHeadersZip", Zip.class, task -> {
+		TaskProvider<ParallelZipTask> cppDriverHeadersZip = project.getTasks().register("cppDriverHeadersZip", ParallelZipTask.class, task -> {
 			task.setDescription("Assembles a Zip archive containing the C++ driver headers.");
 			task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
 
-			task.getArchiveBaseName().set(vendordepExtension.getBaseName("driver"));
-			task.getArchiveClassifier().set("headers");
-			task.getArchiveVersion().set("");
-			task.getDestinationDirectory().set(outputsFolder);
+			task.getArchiveFile().set(project.getLayout().file(vendordepExtension.getBaseName("driver").map((baseName) -> new File(outputsFolder, baseName + "-headers.zip"))));
+			task.compressionFrom(vendordepExtension);
+			task.getReproducible().set(vendordepExtension.getReproducibleArchives());
 			task.from(licenseFile);
 			task.from("src/main/driver/include");
-			task.into("/");
-		}).get();
-
-		buildTask.dependsOn(cppHeadersZip);
-		buildTask.dependsOn(cppSourceZip);
-		buildTask.dependsOn(cppDriverHeadersZip);
-
-		copyAllOutputsTask.addTask(cppHeadersZip);
-		copyAllOutputsTask.addTask(cppSourceZip);
-		copyAllOutputsTask.addTask(cppDriverHeadersZip);
+		});
+
+		// Native binary tasks, one for each platform and link type. Platforms without binaries are skipped, and their archives from earlier
+		// builds are deleted.
+		List<TaskProvider<NativeBinariesZipTask>> binaryZips = new ArrayList<TaskProvider<NativeBinariesZipTask>>();
+		for (NativePlatform platform : NativePlatform.values()) {
+			for (String linkType : new String[] { "shared", "static" }) {
+				Provider<Directory> binariesFolder = vendordepExtension.getNativeBinariesFolder()
+						.dir(String.format("%s/%s", platform.getPlatformName(), linkType));
+				String taskName = String.format("cpp%s%sZip", platform.getTaskName(), linkType.equals("static") ? "Static" : "Shared");
+
+				binaryZips.add(project.getTasks().register(taskName, NativeBinariesZipTask.class, task -> {
+					task.setDescription(String.format("Assembles a Zip archive containing the %s %s libraries.", platform.getPlatformName(), linkType));
+					task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
+
+					task.getArchiveFile().set(project.getLayout().file(vendordepExtension.getBaseName("cpp")
+							.map((baseName) -> new File(outputsFolder, String.format("%s-%s.zip", baseName, platform.getClassifier(linkType))))));
+					task.compressionFrom(vendordepExtension);
+					task.getReproducible().set(vendordepExtension.getReproducibleArchives());
+					task.from(licenseFile);
+					task.into(platform.getArchiveFolder(linkType), binariesFolder);
+					task.getBinaries().from(project.fileTree(binariesFolder));
+				}));
+			}
+		}
+
+		// Task metrics
+		TaskMetricsService.track(project, cppHeadersZip, cppSourceZip, cppDriverHeadersZip);
+		TaskMetricsService.track(project, binaryZips.toArray(new TaskProvider<?>[0]));
+
+		// Build outputs
+		project.getTasks().named("copyAllOutputs", CopyAllOutputsTask.class, task -> {
+			task.addArchiveFile(cppHeadersZip.flatMap(ParallelZipTask::getArchiveFile));
+			task.getInputFiles().from(project.getProviders().provider(() -> devMode.get() ? List.of()
+					: List.of(cppSourceZip.flatMap(ParallelZipTask::getArchiveFile))));
+			task.addArchiveFile(cppDriverHeadersZip.flatMap(ParallelZipTask::getArchiveFile));
+			for (TaskProvider<NativeBinariesZipTask> binaryZip : binaryZips) {
+				task.addArchiveFile(binaryZip.flatMap(ParallelZipTask::getArchiveFile));
+			}
+		});
+
+		// Build task dependencies
+		project.getTasks().named("build", task -> {
+			task.dependsOn(cppHeadersZip);
+			task.dependsOn(cppSourceZip);
+			task.dependsOn(cppDriverHeadersZip);
+			task.dependsOn(binaryZips);
+		});
 	}
 }
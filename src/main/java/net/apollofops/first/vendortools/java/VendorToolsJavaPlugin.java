@@ -1,20 +1,31 @@
 package net.apollofops.first.vendortools.java;
 
 import java.io.File;
+import java.util.List;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
 import org.gradle.api.file.Directory;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.publish.PublishingExtension;
 import org.gradle.api.publish.maven.MavenPublication;
+import org.gradle.api.publish.maven.tasks.AbstractPublishToMaven;
+import org.gradle.api.publish.maven.tasks.GenerateMavenPom;
+import org.gradle.api.publish.maven.tasks.PublishToMavenRepository;
+import org.gradle.api.publish.plugins.PublishingPlugin;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
 import org.gradle.api.tasks.javadoc.Javadoc;
 
 import net.apollofops.first.vendortools.CopyAllOutputsTask;
+import net.apollofops.first.vendortools.CopyArchiveTask;
+import net.apollofops.first.vendortools.TaskMetricsService;
 import net.apollofops.first.vendortools.VendorToolsPlugin;
 import net.apollofops.first.vendortools.VendordepExtension;
 
@@ -30,7 +41,8 @@ public class VendorToolsJavaPlugin implements Plugin<Project> {
 	 */
 	@Override
 	public void apply(Project project) {
-		// Main plugin extension
+		// Main plugin and extension
+		project.getPluginManager().apply(VendorToolsPlugin.class);
 		VendordepExtension vendordepExtension = project.getExtensions().getByType(VendordepExtension.class);
 
 		// Plugin dependencies
@@ -41,100 +53,157 @@ public class VendorToolsJavaPlugin implements Plugin<Project> {
 		JavaPluginExtension javaPluginExtension = project.getExtensions().getByType(JavaPluginExtension.class);
 
 		// Task dependencies
-		Task buildTask = project.getTasks().getByName("build");
-		Task classesTask = project.getTasks().getByName("classes");
-		Javadoc javadocTask = project.getTasks().withType(Javadoc.class).getByName("javadoc");
-		CopyAllOutputsTask copyAllOutputsTask = project.getTasks().withType(CopyAllOutputsTask.class).getByName("copyAllOutputs");
+		TaskProvider<Javadoc> javadocTask = project.getTasks().named(JavaPlugin.JAVADOC_TASK_NAME, Javadoc.class);
 
 		Directory buildDir = project.getLayout().getBuildDirectory().get();
 		File outputsFolder = project.file(String.format("%s/outputs", buildDir));
 
 		SourceSet mainSourceSet = javaPluginExtension.getSourceSets().getByName("main");
 
+		// The Javadoc and sources archives are skipped in dev mode. Their Jar tasks are disabled rather than skipped, so they are also left out
+		// of the publication.
+		Provider<Boolean> devMode = vendordepExtension.getDevMode();
+		Spec<Task> notDevMode = (task) -> !devMode.get();
+		javadocTask.configure(task -> task.onlyIf("dev mode is off", notDevMode));
+
 		// Jar tasks
-		Jar jarTask = project.getTasks().withType(Jar.class).getByName("jar");
+		TaskProvider<Jar> jarTask = project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class, task -> {
+			VendorToolsPlugin.configureArchiveTask(task, vendordepExtension);
+		});
 
-		Jar sourcesJarTask = project.getTasks().register("sourcesJar", Jar.class, task -> {
+		TaskProvider<Jar> sourcesJarTask = project.getTasks().register("sourcesJar", Jar.class, task -> {
+			task.setEnabled(!devMode.get());
 			task.setDescription("Assembles a Jar archive containing the main source.");
 			task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
+			VendorToolsPlugin.configureArchiveTask(task, vendordepExtension);
 
 			task.getArchiveClassifier().set("sources");
 			task.getArchiveVersion().set("");
 			task.from(mainSourceSet.getAllSource());
-			task.dependsOn(classesTask);
-		}).get();
+			task.dependsOn(JavaPlugin.CLASSES_TASK_NAME);
+		});
 
-		Jar javadocJarTask = project.getTasks().register("javadocJar", Jar.class, task -> {
+		TaskProvider<Jar> javadocJarTask = project.getTasks().register("javadocJar", Jar.class, task -> {
+			task.setEnabled(!devMode.get());
 			task.setDescription("Assembles a Jar archive containing the main Javadoc.");
 			task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
+			VendorToolsPlugin.configureArchiveTask(task, vendordepExtension);
 
 			task.getArchiveClassifier().set("javadoc");
 			task.getArchiveVersion().set("");
-			task.from(javadocTask.getDestinationDir());
-			task.dependsOn(javadocTask);
-		}).get();
+			task.from(javadocTask);
+		});
 
-		Jar outputJarTask = project.getTasks().register("outputJar", Jar.class, task -> {
-			task.setDescription("Assembles a Jar archive containing the main output.");
+		// Output tasks, which reuse the archives above instead of compressing them again
+		TaskProvider<CopyArchiveTask> outputJarTask = project.getTasks().register("outputJar", CopyArchiveTask.class, task -> {
+			task.setDescription("Places the main Jar archive in the outputs folder.");
 			task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
 
-			task.getArchiveBaseName().set(vendordepExtension.getBaseName("java"));
-			task.getArchiveVersion().set("");
-			task.getDestinationDirectory().set(outputsFolder);
-			task.from(mainSourceSet.getOutput());
-			task.dependsOn(classesTask);
-		}).get();
+			task.getSourceFile().set(jarTask.flatMap(Jar::getArchiveFile));
+			task.getArchiveFile().set(project.getLayout().file(vendordepExtension.getBaseName("java")
+					.map((baseName) -> new File(outputsFolder, String.format("%s.jar", baseName)))));
+		});
 
-		Jar outputSourcesJarTask = project.getTasks().register("outputSourcesJar", Jar.class, task -> {
-			task.setDescription("Assembles a Jar archive containing the main output sources.");
+		TaskProvider<CopyArchiveTask> outputSourcesJarTask = project.getTasks().register("outputSourcesJar", CopyArchiveTask.class, task -> {
+			task.onlyIf("dev mode is off", notDevMode);
+			task.setDescription("Places the main sources Jar archive in the outputs folder.");
 			task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
 
-			task.getArchiveBaseName().set(vendordepExtension.getBaseName("java"));
-			task.getArchiveClassifier().set("sources");
-			task.getArchiveVersion().set("");
-			task.getDestinationDirectory().set(outputsFolder);
-			task.from(mainSourceSet.getAllSource());
-			task.dependsOn(classesTask);
-		}).get();
+			task.getSourceFile().set(sourcesJarTask.flatMap(Jar::getArchiveFile));
+			task.getArchiveFile().set(project.getLayout().file(vendordepExtension.getBaseName("java")
+					.map((baseName) -> new File(outputsFolder, String.format("%s-sources.jar", baseName)))));
+		});
 
-		Jar outputJavadocJarTask = project.getTasks().register("outputJavadocJar", Jar.class, task -> {
-			task.setDescription("Assembles a Jar archive containing the main output Javadoc.");
+		TaskProvider<CopyArchiveTask> outputJavadocJarTask = project.getTasks().register("outputJavadocJar", CopyArchiveTask.class, task -> {
+			task.onlyIf("dev mode is off", notDevMode);
+			task.setDescription("Places the main Javadoc Jar archive in the outputs folder.");
 			task.setGroup(VendorToolsPlugin.BUILD_TASK_GROUP);
 
-			task.getArchiveBaseName().set(vendordepExtension.getBaseName("java"));
-			task.getArchiveClassifier().set("javadoc");
-			task.getArchiveVersion().set("");
-			task.getDestinationDirectory().set(outputsFolder);
-			task.from(javadocTask.getDestinationDir());
-			task.dependsOn(javadocTask);
-		}).get();
+			task.getSourceFile().set(javadocJarTask.flatMap(Jar::getArchiveFile));
+			task.getArchiveFile().set(project.getLayout().file(vendordepExtension.getBaseName("java")
+					.map((baseName) -> new File(outputsFolder, String.format("%s-javadoc.jar", baseName)))));
+		});
+
+		// Task metrics
+		TaskMetricsService.track(project, jarTask, sourcesJarTask, javadocJarTask, outputJarTask, outputSourcesJarTask, outputJavadocJarTask);
 
 		// Build artifacts
 		project.getArtifacts().add("archives", sourcesJarTask);
 		project.getArtifacts().add("archives", javadocJarTask);
-		project.getArtifacts().add("archives", outputJarTask);
-		project.getArtifacts().add("archives", outputSourcesJarTask);
-		project.getArtifacts().add("archives", outputJavadocJarTask);
+		project.getArtifacts().add("archives", outputJarTask.flatMap(CopyArchiveTask::getArchiveFile));
+		project.getArtifacts().add("archives", outputSourcesJarTask.flatMap(CopyArchiveTask::getArchiveFile));
+		project.getArtifacts().add("archives", outputJavadocJarTask.flatMap(CopyArchiveTask::getArchiveFile));
 
 		// Build outputs
-		copyAllOutputsTask.addTask(outputSourcesJarTask);
-		copyAllOutputsTask.addTask(outputJavadocJarTask);
-		copyAllOutputsTask.addTask(outputJarTask);
+		project.getTasks().named("copyAllOutputs", CopyAllOutputsTask.class, task -> {
+			task.getInputFiles().from(project.getProviders().provider(() -> devMode.get() ? List.of() : List.of(
+					outputSourcesJarTask.flatMap(CopyArchiveTask::getArchiveFile),
+					outputJavadocJarTask.flatMap(CopyArchiveTask::getArchiveFile))));
+			task.addArchiveFile(outputJarTask.flatMap(CopyArchiveTask::getArchiveFile));
+		});
 
 		// Build task dependencies
-		buildTask.dependsOn("outputSourcesJar");
-		buildTask.dependsOn("outputJavadocJar");
-		buildTask.dependsOn("outputJar");
-
-		project.afterEvaluate((ae) -> {
-			// Publications
-			MavenPublication javaPublication = publishingExtension.getPublications().create("java", MavenPublication.class);
-			javaPublication.artifact(jarTask);
-			javaPublication.artifact(sourcesJarTask);
-			javaPublication.artifact(javadocJarTask);
-			javaPublication.setArtifactId(String.format("%s-java", vendordepExtension.getBaseArtifactId().get()));
-			javaPublication.setGroupId(vendordepExtension.getArtifactGroupId().get());
-			javaPublication.setVersion((String) project.getVersion());
+		project.getTasks().named("build", task -> {
+			task.dependsOn(outputSourcesJarTask);
+			task.dependsOn(outputJavadocJarTask);
+			task.dependsOn(outputJarTask);
+		});
+
+		// Publications
+		MavenPublication javaPublication = publishingExtension.getPublications().create("java", MavenPublication.class);
+		javaPublication.artifact(jarTask);
+		javaPublication.artifact(sourcesJarTask);
+		javaPublication.artifact(javadocJarTask);
+
+		// MavenPublication only takes its coordinates as values, so they are set when the tasks that read the publication are configured,
+		// after every build script has run.
+		Provider<String> artifactId = vendordepExtension.getBaseArtifactId().map((baseArtifactId) -> String.format("%s-java", baseArtifactId));
+		Provider<String> groupId = vendordepExtension.getArtifactGroupId();
+		Provider<String> version = vendordepExtension.getPublishVersion();
+		project.getTasks().withType(AbstractPublishToMaven.class).configureEach(task -> {
+			if (task.getPublication() == javaPublication) {
+				setCoordinates(javaPublication, artifactId, groupId, version);
+			}
+		});
+		project.getTasks().withType(GenerateMavenPom.class).configureEach(task -> {
+			if (task.getPom() == javaPublication.getPom()) {
+				setCoordinates(javaPublication, artifactId, groupId, version);
+			}
+		});
+
+		// Publishing to the local releases repo. The repository is removed from the publishing extension again, so maven-publish doesn't
+		// create a publish task for it and every other publication.
+		MavenArtifactRepository releasesRepository = publishingExtension.getRepositories().maven((repository) -> {
+			repository.setName("vendordepReleases");
+			repository.setUrl(vendordepExtension.getReleasesRepoUrl());
+		});
+		publishingExtension.getRepositories().remove(releasesRepository);
+
+		TaskProvider<PublishToMavenRepository> publishDevTask = project.getTasks().register("publishDev", PublishToMavenRepository.class, task -> {
+			task.setDescription("Publishes the Java artifacts to the local releases repo, under a snapshot version in dev mode.");
+			task.setGroup(PublishingPlugin.PUBLISH_TASK_GROUP);
+
+			task.setPublication(javaPublication);
+			task.setRepository(releasesRepository);
 		});
+		TaskMetricsService.track(project, publishDevTask);
+	}
+
+	/**
+	 * Sets the coordinates of a publication.
+	 *
+	 * @param publication
+	 *                The publication to set the coordinates of.
+	 * @param artifactId
+	 *                Provider of the artifact ID.
+	 * @param groupId
+	 *                Provider of the group ID.
+	 * @param version
+	 *                Provider of the version.
+	 */
+	private static void setCoordinates(MavenPublication publication, Provider<String> artifactId, Provider<String> groupId, Provider<String> version) {
+		publication.setArtifactId(artifactId.get());
+		publication.setGroupId(groupId.get());
+		publication.setVersion(version.get());
 	}
 }
@@ -0,0 +1,158 @@
+package net.apollofops.first.vendortools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The timings recorded by the performance scenarios, and the baseline they are compared against. Both are stored as a flat JSON object
+ * with a number of milliseconds for each {@code <scenario>.<metric>} key, so they are easy to diff in review.
+ */
+final class PerformanceBaseline {
+	/**
+	 * Matches one key and value of a baseline file.
+	 */
+	private static final Pattern ENTRY_PATTERN = Pattern.compile("\"([^\"]+)\"\\s*:\\s*(\\d+)");
+	/**
+	 * The slowdown under which a timing is never reported as a regression, since builds this short are mostly noise.
+	 */
+	private static final long NOISE_FLOOR_MILLIS = 250;
+
+	/**
+	 * The timings of the stored baseline, by key.
+	 */
+	private final Map<String, Long> baseline;
+	/**
+	 * The timings recorded by this run, by key.
+	 */
+	private final Map<String, Long> results = new TreeMap<String, Long>();
+	/**
+	 * The fraction a timing may exceed its baseline by before it is reported as a regression.
+	 */
+	private final double tolerance;
+
+	/**
+	 * Creates a new PerformanceBaseline.
+	 *
+	 * @param baseline
+	 *                The timings of the stored baseline, by key.
+	 * @param tolerance
+	 *                The fraction a timing may exceed its baseline by before it is reported as a regression.
+	 */
+	private PerformanceBaseline(Map<String, Long> baseline, double tolerance) {
+		this.baseline = baseline;
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Loads the baseline file named by the {@code vendortools.performance.baseline} system property. A missing file is an empty
+	 * baseline.
+	 *
+	 * @return
+	 *         The baseline.
+	 */
+	static PerformanceBaseline load() {
+		Map<String, Long> baseline = new TreeMap<String, Long>();
+		Path file = baselineFile();
+		if (Files.isRegularFile(file)) {
+			try {
+				Matcher matcher = ENTRY_PATTERN.matcher(Files.readString(file, StandardCharsets.UTF_8));
+				while (matcher.find()) {
+					baseline.put(matcher.group(1), Long.parseLong(matcher.group(2)));
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return new PerformanceBaseline(baseline, Double.parseDouble(System.getProperty("vendortools.performance.tolerance", "0.25")));
+	}
+
+	/**
+	 * Records the timings of a scenario, and compares them against the baseline.
+	 *
+	 * @param scenario
+	 *                The name of the scenario.
+	 * @param timings
+	 *                The timings of the scenario, by metric.
+	 * @return
+	 *         A description of each timing that regressed, or an empty list. Nothing is reported while the baseline is being updated, or for
+	 *         timings that aren't in the baseline yet.
+	 */
+	synchronized List<String> record(String scenario, Map<String, Long> timings) {
+		List<String> regressions = new ArrayList<String>();
+		timings.forEach((metric, millis) -> {
+			String key = String.format("%s.%s", scenario, metric);
+			results.put(key, millis);
+			Long expected = baseline.get(key);
+			if (!isUpdating() && expected != null && millis > expected * (1 + tolerance) && millis - expected > NOISE_FLOOR_MILLIS) {
+				regressions.add(String.format("%s took %d ms, the baseline is %d ms", key, millis, expected));
+			}
+		});
+		return regressions;
+	}
+
+	/**
+	 * Writes the recorded timings to the results file, and to the baseline file if it is being updated. Timings of the baseline that
+	 * weren't recorded by this run are kept.
+	 */
+	synchronized void save() {
+		write(Path.of(System.getProperty("vendortools.performance.results", "build/reports/performance/results.json")), results);
+		if (isUpdating()) {
+			Map<String, Long> updated = new TreeMap<String, Long>(baseline);
+			updated.putAll(results);
+			write(baselineFile(), updated);
+		}
+	}
+
+	/**
+	 * Gets whether the baseline is being replaced by the recorded timings.
+	 *
+	 * @return
+	 *         Whether the {@code vendortools.performance.updateBaseline} system property is set.
+	 */
+	private static boolean isUpdating() {
+		return Boolean.getBoolean("vendortools.performance.updateBaseline");
+	}
+
+	/**
+	 * Gets the baseline file.
+	 *
+	 * @return
+	 *         The file named by the {@code vendortools.performance.baseline} system property.
+	 */
+	private static Path baselineFile() {
+		return Path.of(System.getProperty("vendortools.performance.baseline", "src/performanceTest/resources/performance-baseline.json"));
+	}
+
+	/**
+	 * Writes timings as a flat JSON object.
+	 *
+	 * @param file
+	 *                The file to write.
+	 * @param timings
+	 *                The timings, by key.
+	 */
+	private static void write(Path file, Map<String, Long> timings) {
+		StringBuilder json = new StringBuilder("{");
+		String separator = "\n";
+		for (Map.Entry<String, Long> entry : timings.entrySet()) {
+			json.append(separator).append(String.format("\t\"%s\": %d", entry.getKey(), entry.getValue()));
+			separator = ",\n";
+		}
+		json.append("\n}\n");
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			Files.writeString(file, json, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package net.apollofops.first.vendortools;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TestKit performance scenarios for the VendorTools plugins. Each scenario builds a synthetic project and times its configuration, a clean
+ * build and a no-op build, taking the median of several runs after a warm-up build. The timings are written to a JSON report and
+ * compared against the stored {@link PerformanceBaseline baseline}. The size of each scenario can be changed with the system properties
+ * read by {@link #size(String, int)}, and is part of the scenario name, so the baseline is only used for the same size.
+ */
+class VendorToolsPerformanceTest {
+	/**
+	 * The number of timed runs of each measurement.
+	 */
+	private static final int RUNS = Integer.getInteger("vendortools.performance.runs", 3);
+	/**
+	 * The baseline the timings are compared against.
+	 */
+	private static final PerformanceBaseline BASELINE = PerformanceBaseline.load();
+
+	/**
+	 * The directory the scenario project is written to.
+	 */
+	@TempDir
+	Path projectDir;
+
+	/**
+	 * Writes the results, and the baseline if it is being updated.
+	 */
+	@AfterAll
+	static void saveResults() {
+		BASELINE.save();
+	}
+
+	/**
+	 * Times a library that only builds Java artifacts, with many source files.
+	 */
+	@Test
+	void javaOnly() {
+		int sources = size("javaSources", 200);
+		TestProject project = library(new TestProject(projectDir), "java()");
+		for (int i = 0; i < sources; i++) {
+			project.write(String.format("src/main/java/com/acme/Acme%d.java", i),
+					String.format("package com.acme;\n\n/** Acme %1$d. */\npublic class Acme%1$d {\n\t/** @return %1$d */\n\tpublic int value() {\n\t\treturn %1$d;\n\t}\n}\n", i));
+		}
+
+		check(String.format("javaOnly-%d", sources), project, () -> {
+		}, "clean", "build");
+	}
+
+	/**
+	 * Times a library that only builds C++ artifacts, with many headers.
+	 */
+	@Test
+	void cppHeaders() {
+		int headers = size("cppHeaders", 2000);
+		TestProject project = library(new TestProject(projectDir), "cpp()");
+		for (int i = 0; i < headers; i++) {
+			project.write(String.format("src/main/native/include/acme/module%d/header%d.h", i / 100, i),
+					String.format("#pragma once\n\nnamespace acme {\nint value%1$d();\n}\n", i));
+		}
+		project.write("src/main/native/cpp/acme.cpp", "int acme() { return 1; }\n");
+		project.write("src/main/driver/include/acme_driver.h", "#pragma once\n");
+
+		check(String.format("cppHeaders-%d", headers), project, () -> {
+		}, "clean", "build");
+	}
+
+	/**
+	 * Times combining product folders into a Maven repository, with several artifacts in each folder.
+	 */
+	@Test
+	void combiner() {
+		int folders = size("combinerFolders", 20);
+		int artifacts = size("combinerArtifacts", 20);
+		TestProject project = new TestProject(projectDir);
+		project.write("settings.gradle", "rootProject.name = 'combined'\n");
+		project.write("build.gradle", String.join("\n",
+				"plugins {",
+				"	id 'base'",
+				"	id 'net.apollofops.first.VendorTools.combiner'",
+				"}",
+				"",
+				"version = '1.0.0'",
+				"vendordep {",
+				"	releasesRepoName = 'release'",
+				"	mavenRepoUrl = uri('repos').toString()",
+				"}",
+				""));
+		for (int folder = 0; folder < folders; folder++) {
+			project.write(String.format("build/products/lib%d/metadata.properties", folder), "pubVersion=1.0.0\nreleasesRepoName=release\n");
+			for (int artifact = 0; artifact < artifacts; artifact++) {
+				project.write(String.format("build/products/lib%1$d/_GROUP_com_acme_ID_lib%1$d-part%2$d_CLS.jar", folder, artifact),
+						String.format("lib%d part%d", folder, artifact));
+			}
+		}
+
+		check(String.format("combiner-%dx%d", folders, artifacts), project, () -> delete(project.file("repos")), "combineToRepository");
+	}
+
+	/**
+	 * Writes the build script and the files shared by the library scenarios.
+	 *
+	 * @param project
+	 *                The project to write.
+	 * @param libraries
+	 *                The calls in the {@code vendordep} block that apply the library plugins.
+	 * @return
+	 *         The project.
+	 */
+	private static TestProject library(TestProject project, String libraries) {
+		project.write("settings.gradle", "rootProject.name = 'acmelib'\n");
+		project.write("build.gradle", String.join("\n",
+				"plugins {",
+				"	id 'java'",
+				"	id 'net.apollofops.first.VendorTools'",
+				"}",
+				"",
+				"version = '1.0.0'",
+				"ext.licenseFile = file('LICENSE')",
+				"",
+				"vendordep {",
+				"	" + libraries,
+				"	vendordepJsonFile = file('AcmeLib.json')",
+				"	baseArtifactId = 'acmelib'",
+				"	artifactGroupId = 'com.acme'",
+				"	releasesRepoName = 'release'",
+				"}",
+				""));
+		project.write("LICENSE", "Acme license\n");
+		project.write("AcmeLib.json", "{\n\t\"name\": \"AcmeLib\",\n\t\"version\": \"${version}\"\n}\n");
+		return project;
+	}
+
+	/**
+	 * Times a scenario and fails if any timing regressed against the baseline. The clean build runs the given tasks after cleaning, and the
+	 * configuration and no-op builds run the same tasks without the ones named {@code clean}.
+	 *
+	 * @param scenario
+	 *                The name of the scenario.
+	 * @param project
+	 *                The project to build.
+	 * @param clean
+	 *                Removes outputs that the {@code clean} task doesn't, before each clean build.
+	 * @param tasks
+	 *                The tasks of a clean build.
+	 */
+	private static void check(String scenario, TestProject project, Runnable clean, String... tasks) {
+		String[] buildTasks = Arrays.stream(tasks).filter((task) -> !task.equals("clean")).toArray(String[]::new);
+
+		// Warm up the daemon and create the outputs the no-op builds start from
+		clean.run();
+		time(project, tasks);
+
+		Map<String, Long> timings = new LinkedHashMap<String, Long>();
+		timings.put("configurationMillis", median(() -> time(project, append(buildTasks, "--dry-run"))));
+		timings.put("cleanBuildMillis", median(() -> {
+			clean.run();
+			return time(project, tasks);
+		}));
+		timings.put("noOpBuildMillis", median(() -> time(project, buildTasks)));
+
+		List<String> regressions = BASELINE.record(scenario, timings);
+		assertTrue(regressions.isEmpty(), () -> String.format("%s regressed:%n  %s", scenario, String.join(String.format("%n  "), regressions)));
+	}
+
+	/**
+	 * Runs a build and times it.
+	 *
+	 * @param project
+	 *                The project to build.
+	 * @param arguments
+	 *                The arguments to run Gradle with.
+	 * @return
+	 *         The wall time of the build, in milliseconds.
+	 */
+	private static long time(TestProject project, String... arguments) {
+		GradleRunner runner = GradleRunner.create()
+				.withProjectDir(project.getProjectDir().toFile())
+				.withPluginClasspath()
+				.withArguments(arguments);
+		long start = System.nanoTime();
+		runner.build();
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	/**
+	 * Runs a measurement {@link #RUNS} times.
+	 *
+	 * @param measurement
+	 *                The measurement.
+	 * @return
+	 *         The median of the runs.
+	 */
+	private static long median(Measurement measurement) {
+		List<Long> runs = new ArrayList<Long>();
+		for (int i = 0; i < RUNS; i++) {
+			runs.add(measurement.run());
+		}
+		Collections.sort(runs);
+		return runs.get(runs.size() / 2);
+	}
+
+	/**
+	 * Gets the size of a scenario from the {@code vendortools.performance.<name>} system property.
+	 *
+	 * @param name
+	 *                The name of the size.
+	 * @param defaultSize
+	 *                The size used if the property isn't set.
+	 * @return
+	 *         The size.
+	 */
+	private static int size(String name, int defaultSize) {
+		return Integer.getInteger(String.format("vendortools.performance.%s", name), defaultSize);
+	}
+
+	/**
+	 * Appends an argument to a list of arguments.
+	 *
+	 * @param arguments
+	 *                The arguments.
+	 * @param argument
+	 *                The argument to append.
+	 * @return
+	 *         The new arguments.
+	 */
+	private static String[] append(String[] arguments, String argument) {
+		String[] appended = Arrays.copyOf(arguments, arguments.length + 1);
+		appended[arguments.length] = argument;
+		return appended;
+	}
+
+	/**
+	 * Deletes a directory and everything in it, if it exists.
+	 *
+	 * @param directory
+	 *                The directory to delete.
+	 */
+	private static void delete(Path directory) {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * A timed measurement.
+	 */
+	@FunctionalInterface
+	private interface Measurement {
+		/**
+		 * Runs the measurement.
+		 *
+		 * @return
+		 *         The time it took, in milliseconds.
+		 */
+		long run();
+	}
+}
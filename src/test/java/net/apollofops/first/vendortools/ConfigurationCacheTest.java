@@ -0,0 +1,62 @@
+package net.apollofops.first.vendortools;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that builds using the VendorTools plugins can be stored in and reused from the configuration cache.
+ */
+class ConfigurationCacheTest {
+	/**
+	 * The directory the test project is written to.
+	 */
+	@TempDir
+	Path projectDir;
+
+	/**
+	 * Runs the same library build twice, and checks that the second run reuses the configuration cache.
+	 */
+	@Test
+	void libraryBuildReusesConfigurationCache() {
+		TestProject project = TestProject.library(projectDir);
+
+		BuildResult first = project.build("build", "vendordepJson", "--configuration-cache");
+		assertTrue(first.getOutput().contains("Configuration cache entry stored"), "The first build should store the configuration cache");
+
+		BuildResult second = project.build("build", "vendordepJson", "--configuration-cache");
+		assertTrue(second.getOutput().contains("Reusing configuration cache"), "The second build should reuse the configuration cache");
+	}
+
+	/**
+	 * Runs the same combiner build twice, and checks that the second run reuses the configuration cache, even though the first run wrote
+	 * the combiner's products index.
+	 */
+	@Test
+	void combinerBuildReusesConfigurationCache() {
+		TestProject project = new TestProject(projectDir);
+		project.write("settings.gradle", "rootProject.name = 'combined'\n");
+		project.write("build.gradle", String.join("\n",
+				"plugins {",
+				"	id 'base'",
+				"	id 'net.apollofops.first.VendorTools.combiner'",
+				"}",
+				"",
+				"version = '1.0.0'",
+				"vendordep.releasesRepoName = 'release'",
+				""));
+		project.write("build/products/acmelib/_GROUP_com_acme_ID_acmelib-java_CLS.jar", "jar");
+
+		for (String task : new String[] { "combineToRepository", "publish" }) {
+			BuildResult first = project.build(task, "--configuration-cache");
+			assertTrue(first.getOutput().contains("Configuration cache entry stored"), "The first build should store the configuration cache");
+
+			BuildResult second = project.build(task, "--configuration-cache");
+			assertTrue(second.getOutput().contains("Reusing configuration cache"), "The second build should reuse the configuration cache");
+		}
+	}
+}
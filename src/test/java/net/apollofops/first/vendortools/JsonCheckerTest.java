@@ -0,0 +1,29 @@
+package net.apollofops.first.vendortools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link JsonChecker}.
+ */
+class JsonCheckerTest {
+	/**
+	 * Checks that escaped strings, including control characters, are valid JSON string literals.
+	 */
+	@Test
+	void escapedStringsAreValidJson() {
+		String value = "C:\\acme \"lib\"\n\t\u0000\u001f\u00e9";
+		String escaped = JsonChecker.escape(value);
+		assertEquals("C:\\\\acme \\\"lib\\\"\\n\\t\\u0000\\u001f\u00e9", escaped);
+
+		JsonChecker checker = new JsonChecker();
+		String json = String.format("\"%s\"", escaped);
+		for (int i = 0; i < json.length(); i++) {
+			assertTrue(checker.accept(json.charAt(i)));
+		}
+		assertTrue(checker.finish());
+		assertEquals(null, checker.getError());
+	}
+}
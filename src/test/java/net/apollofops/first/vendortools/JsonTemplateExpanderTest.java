@@ -0,0 +1,98 @@
+package net.apollofops.first.vendortools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link JsonTemplateExpander}.
+ */
+class JsonTemplateExpanderTest {
+	/**
+	 * The values available to the templates.
+	 */
+	private static final Map<String, String> VALUES = Map.of("version", "1.2.3", "groupId", "com.acme");
+
+	/**
+	 * Checks that placeholders with and without braces are both expanded.
+	 */
+	@Test
+	void expandsPlaceholdersWithAndWithoutBraces() throws IOException {
+		assertEquals("{\"v\": \"1.2.3\", \"g\": \"com.acme/x\"}", expand("{\"v\": \"${version}\", \"g\": \"$groupId/x\"}"));
+	}
+
+	/**
+	 * Checks that a doubled dollar sign writes a literal placeholder, and that other dollar signs are copied as-is.
+	 */
+	@Test
+	void escapesAndKeepsOtherDollarSigns() throws IOException {
+		assertEquals("[\"${version}\", \"$version\", \"$1\", \"$\"]", expand("[\"$${version}\", \"$$version\", \"$1\", \"$\"]"));
+	}
+
+	/**
+	 * Checks that values substituted inside a string are escaped, and that values outside of strings are written as-is.
+	 */
+	@Test
+	void escapesValuesInsideStrings() throws IOException {
+		Map<String, String> values = Map.of("name", "Acme \"Lib\"", "path", "C:\\libs", "count", "3");
+		assertEquals("{\"name\": \"Acme \\\"Lib\\\"\", \"path\": \"C:\\\\libs/x\", \"count\": 3}",
+				expand("{\"name\": \"${name}\", \"path\": \"$path/x\", \"count\": $count}", values));
+	}
+
+	/**
+	 * Checks that a byte order mark at the start of the template is skipped.
+	 */
+	@Test
+	void skipsByteOrderMark() throws IOException {
+		assertEquals("{\"v\": \"1.2.3\"}", expand("\uFEFF{\"v\": \"$version\"}"));
+	}
+
+	/**
+	 * Checks that an unknown placeholder without braces is reported with its line and column.
+	 */
+	@Test
+	void reportsUnknownPlaceholderPosition() {
+		GradleException e = assertThrows(GradleException.class, () -> expand("{\n\t\"v\": \"$versoin\"\n}"));
+		assertTrue(e.getMessage().contains("line 2, column 8: Unknown key 'versoin'"), e.getMessage());
+	}
+
+	/**
+	 * Expands a template with the {@link #VALUES}.
+	 *
+	 * @param template
+	 *                The template.
+	 * @return
+	 *         The expanded template.
+	 * @throws IOException
+	 *                 If expanding fails.
+	 */
+	private static String expand(String template) throws IOException {
+		return expand(template, VALUES);
+	}
+
+	/**
+	 * Expands a template.
+	 *
+	 * @param template
+	 *                The template.
+	 * @param values
+	 *                The values to substitute, by key.
+	 * @return
+	 *         The expanded template.
+	 * @throws IOException
+	 *                 If expanding fails.
+	 */
+	private static String expand(String template, Map<String, String> values) throws IOException {
+		StringWriter output = new StringWriter();
+		new JsonTemplateExpander(values).expand(new StringReader(template), output, "test.json");
+		return output.toString();
+	}
+}
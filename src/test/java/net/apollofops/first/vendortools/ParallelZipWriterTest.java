@@ -0,0 +1,142 @@
+package net.apollofops.first.vendortools;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link ParallelZipWriter}.
+ */
+class ParallelZipWriterTest {
+	/**
+	 * The directory the entries and archives are written to.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Checks that stored, deflated and spilled entries are all written with their content and CRC-32, and that no temporary files are
+	 * left behind.
+	 */
+	@Test
+	void writesStoredDeflatedAndSpilledEntries() throws IOException {
+		Random random = new Random(1);
+		byte[] small = "small text entry\n".repeat(100).getBytes();
+		byte[] stored = new byte[100_000];
+		random.nextBytes(stored);
+		byte[] large = new byte[6 * 1024 * 1024];
+		for (int i = 0; i < large.length; i++) {
+			large[i] = (byte) random.nextInt(16);
+		}
+
+		List<ParallelZipWriter.Entry> entries = new ArrayList<ParallelZipWriter.Entry>();
+		entries.add(new ParallelZipWriter.Entry("lib/", null, ParallelZipWriter.REPRODUCIBLE_TIMESTAMP, 0755));
+		entries.add(entry("lib/large.bin", large));
+		entries.add(entry("lib/small.txt", small));
+		entries.add(entry("lib/stored.so", stored));
+
+		Path zipFile = directory.resolve("out/archive.zip");
+		write(zipFile, entries);
+
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			assertEquals(4, zip.size());
+			assertArrayEquals(large, read(zip, "lib/large.bin"));
+			assertArrayEquals(small, read(zip, "lib/small.txt"));
+			assertArrayEquals(stored, read(zip, "lib/stored.so"));
+			assertEquals(ZipEntry.STORED, zip.getEntry("lib/stored.so").getMethod());
+			assertEquals(ZipEntry.DEFLATED, zip.getEntry("lib/large.bin").getMethod());
+		}
+		try (Stream<Path> temporaryFiles = Files.list(directory.resolve("tmp"))) {
+			assertEquals(0, temporaryFiles.count(), "The spilled entries should be deleted");
+		}
+		assertFalse(Files.exists(directory.resolve("out/archive.zip.part")), "The partial archive should be moved into place");
+	}
+
+	/**
+	 * Checks that a failed write leaves neither the partial archive nor the archive from an earlier write.
+	 */
+	@Test
+	void failedWriteLeavesNoArchive() throws IOException {
+		Path zipFile = directory.resolve("out/archive.zip");
+		write(zipFile, List.of(entry("a.txt", new byte[] { 1, 2, 3 })));
+
+		List<ParallelZipWriter.Entry> entries = List.of(entry("a.txt", new byte[] { 1 }),
+				new ParallelZipWriter.Entry("missing.txt", directory.resolve("missing.txt").toFile(), 0, 0644));
+		assertThrows(IOException.class, () -> write(zipFile, entries));
+		assertFalse(Files.exists(zipFile), "The old archive should be deleted");
+		assertFalse(Files.exists(directory.resolve("out/archive.zip.part")), "The partial archive should be deleted");
+	}
+
+	/**
+	 * Writes an archive, storing {@code .so} files and deflating the rest.
+	 *
+	 * @param zipFile
+	 *                The archive to write.
+	 * @param entries
+	 *                The entries to write.
+	 * @throws IOException
+	 *                 If writing the archive fails.
+	 */
+	private void write(Path zipFile, List<ParallelZipWriter.Entry> entries) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			new ParallelZipWriter(executor, 2, (name) -> name.endsWith(".so") ? 0 : 6, directory.resolve("tmp")).write(zipFile, entries);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Writes a file and creates an entry for it.
+	 *
+	 * @param name
+	 *                The name of the entry.
+	 * @param content
+	 *                The content of the file.
+	 * @return
+	 *         The entry.
+	 * @throws IOException
+	 *                 If writing the file fails.
+	 */
+	private ParallelZipWriter.Entry entry(String name, byte[] content) throws IOException {
+		Path file = directory.resolve("files").resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content);
+		return new ParallelZipWriter.Entry(name, file.toFile(), ParallelZipWriter.REPRODUCIBLE_TIMESTAMP, 0644);
+	}
+
+	/**
+	 * Reads an entry of an archive.
+	 *
+	 * @param zip
+	 *                The archive.
+	 * @param name
+	 *                The name of the entry.
+	 * @return
+	 *         The content of the entry.
+	 * @throws IOException
+	 *                 If reading the entry fails, including when its CRC-32 doesn't match.
+	 */
+	private static byte[] read(ZipFile zip, String name) throws IOException {
+		try (InputStream input = zip.getInputStream(zip.getEntry(name))) {
+			return input.readAllBytes();
+		}
+	}
+}
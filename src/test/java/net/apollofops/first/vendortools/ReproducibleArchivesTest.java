@@ -0,0 +1,91 @@
+package net.apollofops.first.vendortools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Functional tests for {@link VendordepExtension#getReproducibleArchives() reproducible archives}.
+ */
+class ReproducibleArchivesTest {
+	/**
+	 * The directory the test project is written to.
+	 */
+	@TempDir
+	Path projectDir;
+
+	/**
+	 * Checks that rebuilding every archive from scratch, after the timestamps of the sources changed, gives byte-identical archives.
+	 */
+	@Test
+	void rebuiltArchivesAreIdentical() throws IOException {
+		TestProject project = TestProject.library(projectDir, "reproducibleArchives = true");
+
+		project.build("build", "offlineInstaller", "--no-build-cache");
+		Map<String, String> first = hashArchives(project);
+		assertFalse(first.isEmpty(), "The build should create archives");
+
+		// Only the timestamps change, so the archives should not
+		try (Stream<Path> sources = Files.walk(project.file("src"))) {
+			for (Path source : (Iterable<Path>) sources::iterator) {
+				Files.setLastModifiedTime(source, FileTime.fromMillis(System.currentTimeMillis() + 3_600_000));
+			}
+		}
+		project.build("clean");
+		project.build("build", "offlineInstaller", "--no-build-cache");
+
+		assertEquals(first, hashArchives(project));
+	}
+
+	/**
+	 * Computes the SHA-256 of every archive in the outputs and distributions folders.
+	 *
+	 * @param project
+	 *                The project that was built.
+	 * @return
+	 *         The SHA-256 of each archive, by path relative to the build folder.
+	 */
+	private static Map<String, String> hashArchives(TestProject project) throws IOException {
+		Path buildDir = project.file("build");
+		Map<String, String> hashes = new TreeMap<String, String>();
+		for (String folder : new String[] { "outputs", "distributions" }) {
+			try (Stream<Path> files = Files.list(buildDir.resolve(folder))) {
+				files.filter((file) -> file.toString().endsWith(".zip") || file.toString().endsWith(".jar"))
+						.forEach((file) -> hashes.put(buildDir.relativize(file).toString(), sha256(file)));
+			}
+		}
+		return hashes;
+	}
+
+	/**
+	 * Computes the SHA-256 of a file.
+	 *
+	 * @param file
+	 *                The file to hash.
+	 * @return
+	 *         The SHA-256, in hex.
+	 */
+	private static String sha256(Path file) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package net.apollofops.first.vendortools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * A Gradle project written to a temporary directory for functional tests, built with the VendorTools plugins under test.
+ */
+public final class TestProject {
+	/**
+	 * The project directory.
+	 */
+	private final Path projectDir;
+
+	/**
+	 * Creates a new TestProject.
+	 *
+	 * @param projectDir
+	 *                The project directory.
+	 */
+	public TestProject(Path projectDir) {
+		this.projectDir = projectDir;
+	}
+
+	/**
+	 * Creates a vendordep project with the Java and C++ library plugins applied, along with the sources, headers and template files they
+	 * need.
+	 *
+	 * @param projectDir
+	 *                The project directory.
+	 * @param extraConfiguration
+	 *                Lines added to the {@code vendordep} block.
+	 * @return
+	 *         The project.
+	 */
+	public static TestProject library(Path projectDir, String... extraConfiguration) {
+		TestProject project = new TestProject(projectDir);
+		project.write("settings.gradle", "rootProject.name = 'acmelib'\n");
+		project.write("build.gradle", String.join("\n",
+				"plugins {",
+				"	id 'java'",
+				"	id 'net.apollofops.first.VendorTools'",
+				"}",
+				"",
+				"version = '1.0.0'",
+				"ext.licenseFile = file('LICENSE')",
+				"",
+				"vendordep {",
+				"	java()",
+				"	cpp()",
+				"	vendordepJsonFile = file('AcmeLib.json')",
+				"	baseArtifactId = 'acmelib'",
+				"	artifactGroupId = 'com.acme'",
+				"	releasesRepoName = 'release'",
+				"	" + String.join("\n\t", extraConfiguration),
+				"}",
+				""));
+		project.write("LICENSE", "Acme license\n");
+		project.write("AcmeLib.json", "{\n\t\"name\": \"AcmeLib\",\n\t\"version\": \"${version}\",\n\t\"groupId\": \"${groupId}\"\n}\n");
+		project.write("src/main/java/com/acme/Acme.java", "package com.acme;\n\n/** Acme. */\npublic class Acme {\n}\n");
+		project.write("src/main/native/include/acme.h", "#pragma once\nint acme();\n");
+		project.write("src/main/native/cpp/acme.cpp", "#include \"acme.h\"\nint acme() { return 1; }\n");
+		project.write("src/main/driver/include/acme_driver.h", "#pragma once\n");
+		return project;
+	}
+
+	/**
+	 * Gets the {@link #projectDir}.
+	 *
+	 * @return
+	 *         The {@link #projectDir}.
+	 */
+	public Path getProjectDir() {
+		return projectDir;
+	}
+
+	/**
+	 * Resolves a path against the {@link #projectDir}.
+	 *
+	 * @param path
+	 *                The path relative to the project directory.
+	 * @return
+	 *         The resolved path.
+	 */
+	public Path file(String path) {
+		return projectDir.resolve(path);
+	}
+
+	/**
+	 * Writes a file in the project, creating its parent directories.
+	 *
+	 * @param path
+	 *                The path of the file relative to the project directory.
+	 * @param contents
+	 *                The contents of the file.
+	 * @return
+	 *         The file.
+	 */
+	public Path write(String path, String contents) {
+		return write(path, contents.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes a file in the project, creating its parent directories.
+	 *
+	 * @param path
+	 *                The path of the file relative to the project directory.
+	 * @param contents
+	 *                The contents of the file.
+	 * @return
+	 *         The file.
+	 */
+	public Path write(String path, byte[] contents) {
+		Path file = file(path);
+		try {
+			Files.createDirectories(file.getParent());
+			Files.write(file, contents);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return file;
+	}
+
+	/**
+	 * Reads a file in the project.
+	 *
+	 * @param path
+	 *                The path of the file relative to the project directory.
+	 * @return
+	 *         The contents of the file.
+	 */
+	public byte[] read(String path) {
+		try {
+			return Files.readAllBytes(file(path));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Creates a runner for the project, with the plugins under test on its classpath.
+	 *
+	 * @param arguments
+	 *                The arguments to run Gradle with.
+	 * @return
+	 *         The runner.
+	 */
+	public GradleRunner runner(String... arguments) {
+		List<String> allArguments = new ArrayList<String>(Arrays.asList(arguments));
+		allArguments.add("--stacktrace");
+		return GradleRunner.create()
+				.withProjectDir(projectDir.toFile())
+				.withPluginClasspath()
+				.withArguments(allArguments)
+				.forwardOutput();
+	}
+
+	/**
+	 * Runs Gradle in the project and expects the build to succeed.
+	 *
+	 * @param arguments
+	 *                The arguments to run Gradle with.
+	 * @return
+	 *         The result of the build.
+	 */
+	public BuildResult build(String... arguments) {
+		return runner(arguments).build();
+	}
+}
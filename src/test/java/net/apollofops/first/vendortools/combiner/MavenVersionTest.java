@@ -0,0 +1,47 @@
+package net.apollofops.first.vendortools.combiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link MavenVersion} ordering.
+ */
+class MavenVersionTest {
+	/**
+	 * Checks that versions are ordered numerically and by qualifier, the way Maven orders them.
+	 */
+	@Test
+	void ordersVersionsLikeMaven() {
+		String[] ordered = { "1.0-alpha1", "1.0-alpha2", "1.0-beta1", "1.0-rc1", "1.0-SNAPSHOT", "1.0", "1.0-sp1", "1.0-acme", "1.0.1", "1.2",
+				"1.10", "2.0.0-beta", "2.0.0", "10.0" };
+		for (int i = 1; i < ordered.length; i++) {
+			String older = ordered[i - 1];
+			String newer = ordered[i];
+			assertTrue(new MavenVersion(older).compareTo(new MavenVersion(newer)) < 0, () -> String.format("%s < %s", older, newer));
+			assertTrue(new MavenVersion(newer).compareTo(new MavenVersion(older)) > 0, () -> String.format("%s > %s", newer, older));
+		}
+	}
+
+	/**
+	 * Checks that trailing zeros, release qualifiers and letter case don't change a version.
+	 */
+	@Test
+	void ignoresTrailingZerosAndReleaseQualifiers() {
+		assertEquals(new MavenVersion("1"), new MavenVersion("1.0.0"));
+		assertEquals(new MavenVersion("1.0"), new MavenVersion("1.0-final"));
+		assertEquals(new MavenVersion("1.0a1"), new MavenVersion("1.0-ALPHA-1"));
+		assertEquals(new MavenVersion("1.0-cr1"), new MavenVersion("1.0-rc1"));
+	}
+
+	/**
+	 * Checks that the greater of two versions is picked regardless of the order they are given in.
+	 */
+	@Test
+	void picksTheGreaterVersion() {
+		assertEquals("1.10.0", MavenVersion.max("1.9.0", "1.10.0"));
+		assertEquals("1.10.0", MavenVersion.max("1.10.0", "1.9.0"));
+		assertEquals("1.0.0", MavenVersion.max(null, "1.0.0"));
+	}
+}
@@ -0,0 +1,188 @@
+package net.apollofops.first.vendortools.combiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.apollofops.first.vendortools.TestProject;
+
+/**
+ * Functional tests for the publications created by the {@link VendorToolsCombinerPlugin}.
+ */
+class VendorToolsCombinerPluginTest {
+	/**
+	 * The directory the test project is written to.
+	 */
+	@TempDir
+	Path projectDir;
+
+	/**
+	 * Creates a combiner project that sets its version and releases repo after the plugin is applied.
+	 *
+	 * @return
+	 *         The project.
+	 */
+	private TestProject combinerProject() {
+		TestProject project = new TestProject(projectDir.resolve("combined"));
+		project.write("settings.gradle", "rootProject.name = 'combined'\n");
+		project.write("build.gradle", String.join("\n",
+				"plugins {",
+				"	id 'base'",
+				"	id 'net.apollofops.first.VendorTools.combiner'",
+				"}",
+				"",
+				"version = '2.0.0'",
+				"vendordep {",
+				"	releasesRepoName = 'release'",
+				"	mavenRepoUrl = uri('repos').toString()",
+				"}",
+				""));
+		return project;
+	}
+
+	/**
+	 * Checks that builds that don't publish don't scan the products folder, and work before it exists.
+	 */
+	@Test
+	void productsAreNotScannedWithoutPublishing() {
+		TestProject project = combinerProject();
+
+		project.write("build.gradle", new String(project.read("build.gradle"), StandardCharsets.UTF_8)
+				+ "\ngradle.taskGraph.whenReady { println \"Publications: ${publishing.publications.names}\" }\n");
+
+		project.build("help");
+		assertFalse(Files.exists(project.file("build/products")), "The products folder shouldn't be created");
+
+		project.write("build/products/acmelib/_GROUP_com_acme_ID_acmelib-java_CLS.jar", "jar");
+		BuildResult result = project.build("help");
+		assertTrue(result.getOutput().contains("Publications: []"), "Publications shouldn't be created by builds that don't publish");
+
+		result = project.build("publish", "--dry-run");
+		assertTrue(result.getOutput().contains("Publications: [com_acmeacmelib-java]"), "Publications should be created when publishing");
+	}
+
+	/**
+	 * Checks that publications use the version and releases repo set by the build script after the plugin was applied.
+	 */
+	@Test
+	void publicationsUseValuesSetAfterApply() {
+		TestProject project = combinerProject();
+		project.write("build/products/acmelib/_GROUP_com_acme_ID_acmelib-java_CLS.jar", "jar");
+
+		project.build("publish");
+		assertTrue(Files.exists(project.file("repos/release/com/acme/acmelib-java/2.0.0/acmelib-java-2.0.0.jar")),
+				"The artifact should be published with the version set after the plugin was applied");
+	}
+
+	/**
+	 * Checks that the routed publish tasks can be run by name.
+	 */
+	@Test
+	void publishTasksCanBeRequestedByName() {
+		TestProject project = combinerProject();
+		project.write("build/products/acmelib/_GROUP_com_acme_ID_acmelib-java_CLS.jar", "jar");
+
+		project.build("publishCom_acmeacmelib-javaPublicationToReleaseRepository");
+		assertTrue(Files.exists(project.file("repos/release/com/acme/acmelib-java/2.0.0/acmelib-java-2.0.0.pom")),
+				"The publication should be published by its own publish task");
+	}
+
+	/**
+	 * Checks that the task graph of {@code publish} grows linearly with the number of publications, with exactly one publish task for each
+	 * publication, when the publications are spread over two releases repos.
+	 */
+	@Test
+	void publishTaskGraphGrowsLinearly() {
+		int[] sizes = { 4, 8, 16 };
+		int[] graphSizes = new int[sizes.length];
+
+		for (int i = 0; i < sizes.length; i++) {
+			TestProject project = new TestProject(projectDir.resolve(String.valueOf(sizes[i])));
+			project.write("settings.gradle", "rootProject.name = 'combined'\n");
+			project.write("build.gradle", combinerProject().read("build.gradle"));
+			for (int artifact = 0; artifact < sizes[i]; artifact++) {
+				String folder = artifact % 2 == 0 ? "first" : "second";
+				project.write(String.format("build/products/%s/_GROUP_com_acme_ID_lib%d-java_CLS.jar", folder, artifact), "jar");
+			}
+			project.write("build/products/first/metadata.properties", "releasesRepoName=first\n");
+			project.write("build/products/second/metadata.properties", "releasesRepoName=second\n");
+
+			String output = project.build("publish", "--dry-run").getOutput();
+			long publishTasks = output.lines().filter((line) -> line.matches(":publish.+PublicationTo.+Repository SKIPPED")).count();
+			assertEquals(sizes[i], publishTasks, "There should be one publish task for each publication");
+			graphSizes[i] = (int) output.lines().filter((line) -> line.endsWith(" SKIPPED")).count();
+		}
+
+		// Doubling the publications should double the part of the graph that depends on them
+		assertEquals(graphSizes[1] - graphSizes[0], (graphSizes[2] - graphSizes[1]) / 2, "The task graph should grow linearly");
+	}
+
+	/**
+	 * Checks that snapshots are combined under unique timestamped file names listed in the version's {@code maven-metadata.xml}, and that
+	 * an idempotent rerun writes a complete new build once any file changed.
+	 */
+	@Test
+	void snapshotsArePublishedWithTimestamps() throws IOException {
+		TestProject project = combinerProject();
+		project.write("build.gradle", new String(project.read("build.gradle"), StandardCharsets.UTF_8)
+				.replace("version = '2.0.0'", "version = '2.0.0-SNAPSHOT'")
+				.replace("vendordep {", "vendordep {\n\tidempotentPublish = true"));
+		project.write("build/products/acmelib/_GROUP_com_acme_ID_acmelib-java_CLS.jar", "jar");
+		project.write("build/products/acmelib/_GROUP_com_acme_ID_acmelib-java_CLS-sources.jar", "sources");
+		Path versionFolder = project.file("repos/release/com/acme/acmelib-java/2.0.0-SNAPSHOT");
+
+		project.build("combineToRepository");
+		String metadata = Files.readString(versionFolder.resolve("maven-metadata.xml"));
+		assertTrue(metadata.contains("<buildNumber>1</buildNumber>"), metadata);
+		assertEquals(3, countFiles(versionFolder, ".*-1(-sources)?\\.(jar|pom)"), "Every file should be published under the first build");
+		assertFalse(Files.exists(versionFolder.resolve("acmelib-java-2.0.0-SNAPSHOT.jar")), "No file should use the SNAPSHOT name");
+
+		project.build("combineToRepository");
+		assertEquals(metadata, Files.readString(versionFolder.resolve("maven-metadata.xml")), "An unchanged snapshot shouldn't be written again");
+
+		project.write("build/products/acmelib/_GROUP_com_acme_ID_acmelib-java_CLS.jar", "changed jar");
+		project.build("combineToRepository");
+		metadata = Files.readString(versionFolder.resolve("maven-metadata.xml"));
+		assertTrue(metadata.contains("<buildNumber>2</buildNumber>"), metadata);
+		assertEquals(3, countFiles(versionFolder, ".*-2(-sources)?\\.(jar|pom)"), "Every file should be published under the second build");
+
+		// Every file named by the <snapshot> of the metadata must exist
+		Matcher snapshot = Pattern.compile("<timestamp>([0-9.]+)</timestamp>\\s*<buildNumber>([0-9]+)</buildNumber>").matcher(metadata);
+		assertTrue(snapshot.find(), metadata);
+		String fileVersion = String.format("2.0.0-%s-%s", snapshot.group(1), snapshot.group(2));
+		for (String suffix : new String[] { ".jar", "-sources.jar", ".pom" }) {
+			assertTrue(Files.isRegularFile(versionFolder.resolve(String.format("acmelib-java-%s%s", fileVersion, suffix))),
+					String.format("The %s file of the latest build should exist", suffix));
+		}
+		assertEquals(3, countFiles(versionFolder, ".*-1(-sources)?\\.(jar|pom)"), "The files of the first build should be kept");
+		assertFalse(metadata.matches("(?s).*<value>2\\.0\\.0-[0-9.]+-1</value>.*"), "The metadata should only list the second build");
+	}
+
+	/**
+	 * Counts the files in a folder whose names match a pattern.
+	 *
+	 * @param folder
+	 *                The folder.
+	 * @param pattern
+	 *                The pattern of the file names.
+	 * @return
+	 *         The number of matching files.
+	 */
+	private static long countFiles(Path folder, String pattern) throws IOException {
+		try (Stream<Path> files = Files.list(folder)) {
+			return files.filter((file) -> file.getFileName().toString().matches(pattern)).count();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package net.apollofops.first.vendortools.cpp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipFile;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.apollofops.first.vendortools.TestProject;
+
+/**
+ * Functional tests for the archives created by the {@link VendorToolsCppPlugin}.
+ */
+class VendorToolsCppPluginTest {
+	/**
+	 * The archive of the Linux x86-64 shared libraries.
+	 */
+	private static final String LINUX_SHARED_ZIP = "build/outputs/_GROUP_com_acme_ID_acmelib-cpp_CLS-linuxx86-64.zip";
+
+	/**
+	 * The directory the test project is written to.
+	 */
+	@TempDir
+	Path projectDir;
+
+	/**
+	 * Checks that a platform archive is written while its binaries folder has files, and deleted once the folder is gone.
+	 */
+	@Test
+	void binaryArchiveIsDeletedWithItsBinaries() {
+		TestProject project = TestProject.library(projectDir, "nativeBinariesFolder = file('binaries')");
+		project.write("binaries/linuxx86-64/shared/libacme.so", "binary");
+
+		BuildResult result = project.build("cppLinuxX8664SharedZip");
+		assertEquals(TaskOutcome.SUCCESS, result.task(":cppLinuxX8664SharedZip").getOutcome());
+		assertTrue(Files.isRegularFile(project.file(LINUX_SHARED_ZIP)), "The archive should be written");
+
+		assertTrue(project.file("binaries/linuxx86-64/shared/libacme.so").toFile().delete());
+		project.build("cppLinuxX8664SharedZip");
+		assertFalse(Files.exists(project.file(LINUX_SHARED_ZIP)), "The archive from the earlier build should be deleted");
+
+		// With nothing left to delete, the task is skipped
+		result = project.build("cppLinuxX8664SharedZip");
+		assertEquals(TaskOutcome.NO_SOURCE, result.task(":cppLinuxX8664SharedZip").getOutcome());
+	}
+
+	/**
+	 * Checks that the plugin can be applied by ID before the license file is set, and that the license file set afterwards is added to the
+	 * archives.
+	 */
+	@Test
+	void licenseFileIsReadWhenArchivesAreBuilt() throws IOException {
+		TestProject project = TestProject.library(projectDir);
+		project.write("build.gradle", String.join("\n",
+				"plugins {",
+				"	id 'base'",
+				"	id 'net.apollofops.first.VendorTools.cpp'",
+				"}",
+				"",
+				"version = '1.0.0'",
+				"",
+				"vendordep {",
+				"	licenseFile = file('LICENSE')",
+				"	baseArtifactId = 'acmelib'",
+				"	artifactGroupId = 'com.acme'",
+				"	releasesRepoName = 'release'",
+				"}",
+				""));
+
+		project.build("cppHeadersZip");
+		try (ZipFile zip = new ZipFile(project.file("build/outputs/_GROUP_com_acme_ID_acmelib-cpp_CLS-headers.zip").toFile())) {
+			assertTrue(zip.getEntry("LICENSE") != null, "The license file should be in the archive");
+		}
+	}
+}
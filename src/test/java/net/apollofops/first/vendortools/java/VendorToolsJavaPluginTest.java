@@ -0,0 +1,115 @@
+package net.apollofops.first.vendortools.java;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.apollofops.first.vendortools.TestProject;
+
+/**
+ * Functional tests for the archives and publication created by the {@link VendorToolsJavaPlugin}.
+ */
+class VendorToolsJavaPluginTest {
+	/**
+	 * The Jar archives built by the Java plugin, and the output archives copied from them.
+	 */
+	private static final String[][] ARCHIVE_PAIRS = {
+		{ "build/libs/acmelib-1.0.0.jar", "build/outputs/_GROUP_com_acme_ID_acmelib-java_CLS.jar" },
+		{ "build/libs/acmelib-sources.jar", "build/outputs/_GROUP_com_acme_ID_acmelib-java_CLS-sources.jar" },
+		{ "build/libs/acmelib-javadoc.jar", "build/outputs/_GROUP_com_acme_ID_acmelib-java_CLS-javadoc.jar" },
+	};
+
+	/**
+	 * The directory the test project is written to.
+	 */
+	@TempDir
+	Path projectDir;
+
+	/**
+	 * Checks that each output archive is byte-identical to the Jar it was copied from, and stays a separate file when the Jar is rebuilt.
+	 */
+	@Test
+	void outputArchivesMatchTheirJars() {
+		TestProject project = TestProject.library(projectDir);
+
+		project.build("build");
+		for (String[] pair : ARCHIVE_PAIRS) {
+			assertArrayEquals(project.read(pair[0]), project.read(pair[1]), String.format("%s should match %s", pair[1], pair[0]));
+		}
+
+		// Rebuilding only the Jar must not change the copy in the outputs folder
+		byte[] outputJar = project.read(ARCHIVE_PAIRS[0][1]);
+		project.write("src/main/java/com/acme/Acme.java", "package com.acme;\n\n/** Acme. */\npublic class Acme {\n\t/** Changed. */\n\tpublic int changed;\n}\n");
+		project.build("jar");
+		assertFalse(Arrays.equals(project.read(ARCHIVE_PAIRS[0][0]), outputJar), "The Jar should have been rebuilt");
+		assertArrayEquals(outputJar, project.read(ARCHIVE_PAIRS[0][1]), "The output archive shouldn't change until it's copied again");
+
+		project.build("build");
+		for (String[] pair : ARCHIVE_PAIRS) {
+			assertArrayEquals(project.read(pair[0]), project.read(pair[1]), String.format("%s should match %s", pair[1], pair[0]));
+		}
+	}
+
+	/**
+	 * Checks that the Java publication can be published to Maven local from a clean tree, with the Jar tasks run as dependencies of the
+	 * publish tasks, and the coordinates from the {@code vendordep} block.
+	 */
+	@Test
+	void javaPublicationPublishesFromCleanTree() {
+		TestProject project = TestProject.library(projectDir);
+
+		project.build("publishToMavenLocal", String.format("-Dmaven.repo.local=%s", project.file("m2")));
+		for (String file : new String[] { "acmelib-java-1.0.0.jar", "acmelib-java-1.0.0-sources.jar", "acmelib-java-1.0.0-javadoc.jar", "acmelib-java-1.0.0.pom" }) {
+			assertTrue(Files.isRegularFile(project.file(String.format("m2/com/acme/acmelib-java/1.0.0/%s", file))), String.format("%s should be published", file));
+		}
+	}
+
+	/**
+	 * Checks that {@code publishDev} publishes the Jar under a snapshot version in dev mode, both from a clean tree and after a build,
+	 * without the sources and Javadoc archives that dev mode skips.
+	 */
+	@Test
+	void publishDevPublishesSnapshotJar() throws IOException {
+		TestProject project = TestProject.library(projectDir);
+		Path snapshotFolder = project.file("repos/release/com/acme/acmelib-java/1.0.0-SNAPSHOT");
+
+		project.build("-Pvendortools.dev", "publishDev");
+		assertEquals(1, countJars(snapshotFolder), "One snapshot Jar should be published");
+
+		project.build("-Pvendortools.dev", "build", "publishDev");
+		assertEquals(2, countJars(snapshotFolder), "A second snapshot Jar should be published after the build");
+		assertTrue(Files.isRegularFile(snapshotFolder.resolve("maven-metadata.xml")), "The snapshot metadata should be published");
+	}
+
+	/**
+	 * Counts the Jar files in a folder of a Maven repository, checking that none of them are sources or Javadoc archives.
+	 *
+	 * @param folder
+	 *                The folder to count the Jar files in.
+	 * @return
+	 *         The number of Jar files.
+	 * @throws IOException
+	 *                 If an IOException occurs while listing the folder.
+	 */
+	private static long countJars(Path folder) throws IOException {
+		try (Stream<Path> files = Files.list(folder)) {
+			List<String> jars = files.map((file) -> file.getFileName().toString()).filter((name) -> name.endsWith(".jar")).toList();
+			for (String jar : jars) {
+				assertTrue(jar.startsWith("acmelib-java-1.0.0-"), String.format("%s should be a timestamped snapshot", jar));
+				assertFalse(jar.endsWith("-sources.jar") || jar.endsWith("-javadoc.jar"), String.format("%s shouldn't be published in dev mode", jar));
+			}
+			return jars.size();
+		}
+	}
+}